@@ -0,0 +1,108 @@
+package benchmark;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * Bancada de medicao simples usada pelos benchmarks: executa iteracoes de aquecimento,
+ * mede as iteracoes seguintes e escreve uma linha JSON por resultado (JSON Lines),
+ * para que os resultados possam ser comparados entre versoes.
+ * Opcoes: -aquecimento N, -iteracoes N, -saida arquivo (padrao: saida padrao).
+ */
+public class Bancada {
+
+	//executa uma iteracao e retorna a quantidade de operacoes realizadas
+	public interface Iteracao {
+		long executar() throws Exception;
+	}
+
+	private int aquecimento = 3;
+	private int iteracoes = 5;
+	private PrintStream saida = System.out;
+
+	public static Bancada criar(String[] args) throws FileNotFoundException {
+		Bancada bancada = new Bancada();
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "-aquecimento":
+				bancada.aquecimento = Integer.parseInt(args[i + 1]);
+				break;
+			case "-iteracoes":
+				bancada.iteracoes = Integer.parseInt(args[i + 1]);
+				break;
+			case "-saida":
+				bancada.saida = new PrintStream(new FileOutputStream(args[i + 1], true), true);
+				break;
+			default:
+				throw new IllegalArgumentException("Opcao desconhecida: " + args[i]);
+			}
+		}
+		return bancada;
+	}
+
+	public int getAquecimento() {
+		return aquecimento;
+	}
+
+	public int getIteracoes() {
+		return iteracoes;
+	}
+
+	/**
+	 * Mede a iteracao e registra operacoes por segundo.
+	 * @param parametros pares nome=valor separados por virgula, ex.: "produtores=2,consumidores=2"
+	 */
+	public void medir(String benchmark, String parametros, Iteracao iteracao) {
+		try {
+			for (int i = 0; i < aquecimento; i++)
+				iteracao.executar();
+			double[] amostras = new double[iteracoes];
+			for (int i = 0; i < iteracoes; i++) {
+				long inicio = System.nanoTime();
+				long operacoes = iteracao.executar();
+				long duracao = Math.max(1, System.nanoTime() - inicio);
+				amostras[i] = operacoes * 1e9 / duracao;
+			}
+			registrar(benchmark, parametros, amostras);
+		} catch (Exception e) {
+			System.err.println("Falha no benchmark " + benchmark + " [" + parametros + "]: " + e);
+			e.printStackTrace();
+		}
+	}
+
+	//registra amostras ja medidas, em operacoes por segundo
+	public void registrar(String benchmark, String parametros, double[] amostras) {
+		double soma = 0;
+		double minimo = Double.MAX_VALUE;
+		double maximo = 0;
+		for (double amostra : amostras) {
+			soma += amostra;
+			minimo = Math.min(minimo, amostra);
+			maximo = Math.max(maximo, amostra);
+		}
+		double media = soma / amostras.length;
+		double variancia = 0;
+		for (double amostra : amostras)
+			variancia += (amostra - media) * (amostra - media);
+		double desvio = amostras.length > 1 ? Math.sqrt(variancia / (amostras.length - 1)) : 0;
+
+		StringBuilder json = new StringBuilder(256);
+		json.append("{\"benchmark\":\"").append(benchmark).append("\",\"parametros\":{");
+		if (!parametros.isEmpty()) {
+			String[] pares = parametros.split(",");
+			for (int i = 0; i < pares.length; i++) {
+				String[] par = pares[i].split("=", 2);
+				if (i > 0)
+					json.append(',');
+				json.append('"').append(par[0]).append("\":\"").append(par.length > 1 ? par[1] : "").append('"');
+			}
+		}
+		json.append("},\"iteracoes\":").append(amostras.length);
+		json.append(String.format(Locale.ROOT,
+				",\"opsPorSegundo\":%.1f,\"desvio\":%.1f,\"minimo\":%.1f,\"maximo\":%.1f,\"nanosPorOp\":%.1f}",
+				media, desvio, minimo, maximo, media > 0 ? 1e9 / media : 0));
+		saida.println(json);
+	}
+}
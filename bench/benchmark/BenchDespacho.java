@@ -0,0 +1,69 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+
+import multicast.Multicast;
+import multicast.Packet;
+import multicast.Process;
+
+/*
+ * Vazao de Multicast.despachaPacote com todos os processos enviando ao mesmo tempo para
+ * destinos aleatorios: caixas de mensagens (entrega na thread do receptor) contra o despacho
+ * antigo, com um monitor global e o receptor executado na thread de quem envia.
+ */
+public class BenchDespacho {
+
+	private static final int PACOTES = 200000;
+	private static final int[] PROCESSOS = { 4, 16, 64 };
+
+	public static void main(String[] args) throws Exception {
+		executar(Bancada.criar(args));
+	}
+
+	static void executar(Bancada bancada) {
+		for (int processos : PROCESSOS) {
+			for (boolean caixa : new boolean[] { false, true }) {
+				Multicast multicast = new Multicast(processos);
+				multicast.setRegistrarEventos(false);
+				int porProcesso = PACOTES / processos;
+				bancada.medir("multicast.despachaPacote", "despacho=" + (caixa ? "caixa" : "monitor") + ",processos=" + processos, () -> {
+					long antes = recebidos(multicast);
+					CountDownLatch fim = new CountDownLatch(processos);
+					for (int p = 0; p < processos; p++) {
+						int remetente = p;
+						Thread thread = new Thread(() -> {
+							java.util.SplittableRandom random = new java.util.SplittableRandom(remetente);
+							for (int i = 0; i < porProcesso; i++) {
+								int destino = random.nextInt(processos);
+								Packet packet = new Packet("x", destino, i);
+								if (caixa) {
+									multicast.despachaPacote(packet, remetente);
+								} else {
+									synchronized (multicast) {
+										multicast.getProcessos().get(destino).receiveEvent(packet, remetente);
+									}
+								}
+							}
+							fim.countDown();
+						});
+						thread.setDaemon(true);
+						thread.start();
+					}
+					fim.await();
+					long total = (long) porProcesso * processos;
+					while (recebidos(multicast) - antes < total) //espera as caixas esvaziarem
+						Thread.yield();
+					return total;
+				});
+				multicast.encerrar();
+			}
+		}
+	}
+
+	private static long recebidos(Multicast multicast) {
+		long total = 0;
+		for (Process processo : multicast.getProcessos())
+			total += processo.getRecebidos();
+		return total;
+	}
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import multicast.Multicast;
+import multicast.Packet;
+import multicast.Process;
+
+/*
+ * Entregas por segundo de uma difusao a todos os processos: um Packet por receptor enviado com
+ * despachaPacote, como antes, contra um unico Packet compartilhado entregue com difundePacote.
+ * Uma rodada inicial, fora da medicao, registra os bytes alocados por quem envia para cada entrega.
+ */
+public class BenchDifusao {
+
+	private static final int ENTREGAS = 500000;
+	private static final int[] PROCESSOS = { 16, 128, 1024 };
+
+	public static void main(String[] args) throws Exception {
+		executar(Bancada.criar(args));
+	}
+
+	static void executar(Bancada bancada) {
+		for (int processos : PROCESSOS) {
+			for (boolean compartilhado : new boolean[] { false, true }) {
+				Multicast multicast = new Multicast(processos);
+				multicast.setRegistrarEventos(false);
+				int difusoes = Math.max(1, ENTREGAS / (processos - 1));
+				com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+				long antes = mx.getCurrentThreadAllocatedBytes();
+				long entregas = difundir(multicast, difusoes, compartilhado);
+				long bytes = (mx.getCurrentThreadAllocatedBytes() - antes) / entregas;
+				bancada.medir("multicast.difusao", "pacote=" + (compartilhado ? "compartilhado" : "porReceptor") + ",processos=" + processos
+						+ ",bytesPorEntrega=" + bytes, () -> difundir(multicast, difusoes, compartilhado));
+				multicast.encerrar();
+			}
+		}
+	}
+
+	private static long difundir(Multicast multicast, int difusoes, boolean compartilhado) {
+		int processos = multicast.nprocessos;
+		long antes = recebidos(multicast);
+		for (int i = 0; i < difusoes; i++) {
+			int remetente = i % processos;
+			if (compartilhado) {
+				multicast.difundePacote(Packet.difusao(Packet.MENSAGEM, "x", Multicast.GRUPO_TODOS, remetente, i, null), remetente);
+			} else {
+				for (int destino = 0; destino < processos; destino++)
+					if (destino != remetente)
+						multicast.despachaPacote(new Packet(Packet.MENSAGEM, "x", destino, remetente, i), remetente);
+			}
+		}
+		long total = (long) difusoes * (processos - 1);
+		while (recebidos(multicast) - antes < total) //espera as caixas esvaziarem
+			Thread.yield();
+		return total;
+	}
+
+	private static long recebidos(Multicast multicast) {
+		long total = 0;
+		for (Process processo : multicast.getProcessos())
+			total += processo.getRecebidos();
+		return total;
+	}
+}
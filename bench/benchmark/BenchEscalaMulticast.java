@@ -0,0 +1,46 @@
+package benchmark;
+
+import multicast.ModoExecucao;
+import multicast.Multicast;
+
+/*
+ * Processos do multicast criados por segundo (com as caixas de mensagens prontas) em cada modo de
+ * execucao. Uma rodada inicial, fora da medicao, mede o heap ocupado por processo, registrado como
+ * parametro; as pilhas das threads do modo THREAD ficam fora do heap e nao entram nessa conta.
+ */
+public class BenchEscalaMulticast {
+
+	private static final int[] PROCESSOS = { 1000, 10000, 100000 };
+	//acima disso o modo THREAD esgota as threads do sistema
+	private static final int MAXIMO_THREADS = 10000;
+
+	public static void main(String[] args) throws Exception {
+		executar(Bancada.criar(args));
+	}
+
+	static void executar(Bancada bancada) throws InterruptedException {
+		for (int processos : PROCESSOS) {
+			for (ModoExecucao modo : new ModoExecucao[] { ModoExecucao.TAREFA, ModoExecucao.THREAD }) {
+				if (modo == ModoExecucao.THREAD && processos > MAXIMO_THREADS)
+					continue;
+				long antes = emUso();
+				Multicast multicast = new Multicast(processos, false, modo);
+				long bytes = (emUso() - antes) / processos;
+				multicast.encerrar();
+				bancada.medir("multicast.criar", "modo=" + modo.name().toLowerCase() + ",processos=" + processos
+						+ ",bytesPorProcesso=" + bytes, () -> {
+					new Multicast(processos, false, modo).encerrar();
+					return processos;
+				});
+			}
+		}
+	}
+
+	private static long emUso() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		Thread.sleep(100); //threads de caixas encerradas na rodada anterior terminam de sair
+		for (int i = 0; i < 3; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+
+import multicast.Multicast;
+import multicast.RicartAgrawala;
+
+/*
+ * Secoes criticas por segundo com Ricart-Agrawala quando todos os processos disputam
+ * a secao critica ao mesmo tempo. Uma rodada inicial, fora da medicao, calcula as
+ * mensagens trocadas por secao, registradas como parametro.
+ */
+public class BenchExclusaoMutua {
+
+	private static final int SECOES = 2000;
+	private static final int[] PROCESSOS = { 2, 4, 8, 16 };
+
+	public static void main(String[] args) throws Exception {
+		executar(Bancada.criar(args));
+	}
+
+	static void executar(Bancada bancada) throws InterruptedException {
+		for (int processos : PROCESSOS) {
+			Multicast multicast = new Multicast(processos);
+			int porProcesso = SECOES / processos;
+			disputar(multicast, porProcesso);
+			long mensagens = 0, aquisicoes = 0;
+			for (multicast.Process processo : multicast.getProcessos()) {
+				mensagens += processo.getExclusao().getMensagens();
+				aquisicoes += processo.getExclusao().getAquisicoes();
+			}
+			bancada.medir("exclusao.ricartAgrawala", "processos=" + processos + ",mensagensPorSecao="
+					+ (mensagens / aquisicoes), () -> disputar(multicast, porProcesso));
+		}
+	}
+
+	//cada processo entra e sai da secao critica porProcesso vezes, todos ao mesmo tempo
+	private static long disputar(Multicast multicast, int porProcesso) throws InterruptedException {
+		int processos = multicast.nprocessos;
+		CountDownLatch fim = new CountDownLatch(processos);
+		for (int p = 0; p < processos; p++) {
+			RicartAgrawala exclusao = multicast.getProcessos().get(p).getExclusao();
+			Thread thread = new Thread(() -> {
+				try {
+					for (int i = 0; i < porProcesso; i++) {
+						exclusao.adquirir();
+						exclusao.liberar();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				fim.countDown();
+			});
+			thread.setDaemon(true);
+			thread.start();
+		}
+		fim.await();
+		return (long) porProcesso * processos;
+	}
+}
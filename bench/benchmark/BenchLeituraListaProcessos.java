@@ -0,0 +1,109 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import servidor.Eventos;
+import servidor.ListaProcessos;
+import servidor.Processo;
+import servidor.RegistroEventos;
+
+/*
+ * Mede leituras e escritas por segundo na ListaProcessos com muitas tarefas de consulta
+ * concorrentes (como ConsultarCoordenador) e duas tarefas de escrita (NovoProcesso /
+ * EliminarProcesso), comparando o modo com monitor e o modo de leitura otimizada.
+ */
+public class BenchLeituraListaProcessos {
+
+	private static final int ESCRITORES = 2;
+	private static final int[] LEITORES = { 1, 2, 4, 8, 16, 32 };
+	private static final int TAMANHO = 1000;
+	private static final long DURACAO = 500; //ms por medicao
+
+	public static void main(String[] args) throws Exception {
+		executar(Bancada.criar(args));
+	}
+
+	static void executar(Bancada bancada) throws InterruptedException {
+		Eventos.usar(RegistroEventos.DESLIGADO);
+		for (boolean leituraOtimizada : new boolean[] { false, true }) {
+			for (int leitores : LEITORES) {
+				for (int i = 0; i < bancada.getAquecimento(); i++)
+					medir(leituraOtimizada, leitores, TAMANHO, DURACAO);
+				double[] leituras = new double[bancada.getIteracoes()];
+				double[] escritas = new double[bancada.getIteracoes()];
+				for (int i = 0; i < leituras.length; i++) {
+					long[] resultado = medir(leituraOtimizada, leitores, TAMANHO, DURACAO);
+					leituras[i] = resultado[0];
+					escritas[i] = resultado[1];
+				}
+				String parametros = "modo=" + (leituraOtimizada ? "copia" : "monitor") + ",leitores=" + leitores
+						+ ",escritores=" + ESCRITORES + ",tamanho=" + TAMANHO;
+				bancada.registrar("listaProcessos.concorrente.leituras", parametros, leituras);
+				bancada.registrar("listaProcessos.concorrente.escritas", parametros, escritas);
+			}
+		}
+	}
+
+	//retorna {leituras por segundo, escritas por segundo}
+	static long[] medir(boolean leituraOtimizada, int leitores, int tamanho, long duracao) throws InterruptedException {
+		ListaProcessos lista = new ListaProcessos(leituraOtimizada);
+		int[] pid = { 0 };
+		for (int i = 0; i < tamanho; i++)
+			lista.add(novo(++pid[0]));
+
+		LongAdder leituras = new LongAdder();
+		LongAdder escritas = new LongAdder();
+		long fim = System.nanoTime() + duracao * 1000000L;
+		CountDownLatch terminou = new CountDownLatch(leitores + ESCRITORES);
+
+		for (int i = 0; i < leitores; i++) {
+			iniciar(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				long n = 0;
+				while (System.nanoTime() < fim) {
+					//o que ConsultarCoordenador faz a cada execucao, com toString ocasional
+					Processo processo = lista.get(random.nextInt(Math.max(1, lista.size())));
+					if (processo != null && lista.last() != null && (n & 63) == 0)
+						lista.toString();
+					n++;
+				}
+				leituras.add(n);
+				terminou.countDown();
+			});
+		}
+		for (int i = 0; i < ESCRITORES; i++) {
+			iniciar(() -> {
+				long n = 0;
+				while (System.nanoTime() < fim) {
+					//NovoProcesso seguido de EliminarProcesso mantem o tamanho estavel
+					int novo;
+					synchronized (pid) {
+						novo = ++pid[0];
+					}
+					lista.add(novo(novo));
+					lista.remove(0);
+					n += 2;
+				}
+				escritas.add(n);
+				terminou.countDown();
+			});
+		}
+		terminou.await();
+		double segundos = duracao / 1000.0;
+		return new long[] { (long) (leituras.sum() / segundos), (long) (escritas.sum() / segundos) };
+	}
+
+	private static Processo novo(int pid) {
+		Processo processo = new Processo();
+		processo.setPidId(pid);
+		return processo;
+	}
+
+	private static void iniciar(Runnable tarefa) {
+		Thread thread = new Thread(tarefa);
+		thread.setDaemon(true);
+		thread.start();
+	}
+}
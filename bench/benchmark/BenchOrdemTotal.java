@@ -0,0 +1,73 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+
+import multicast.Entrega;
+import multicast.ModoExecucao;
+import multicast.Multicast;
+import multicast.Process;
+
+/*
+ * Entregas por segundo da difusao em ordem total com todos os processos difundindo ao mesmo tempo.
+ * Uma rodada inicial, fora da medicao, confere que todos os processos entregaram a mesma sequencia
+ * e registra como parametros a fila de retencao media e a latencia de entrega mediana.
+ */
+public class BenchOrdemTotal {
+
+	private static final int DIFUSOES = 20000;
+	private static final int[] PROCESSOS = { 4, 8, 16 };
+
+	public static void main(String[] args) throws Exception {
+		executar(Bancada.criar(args));
+	}
+
+	static void executar(Bancada bancada) throws InterruptedException {
+		for (int processos : PROCESSOS) {
+			Multicast multicast = new Multicast(processos, Entrega.TOTAL, ModoExecucao.THREAD);
+			multicast.setRegistrarEventos(false);
+			int porProcesso = DIFUSOES / processos;
+			difundir(multicast, porProcesso);
+			boolean igual = true;
+			double fila = 0;
+			long latencia = 0;
+			for (Process processo : multicast.getProcessos()) {
+				igual &= processo.getAssinaturaOrdem() == multicast.getProcessos().get(0).getAssinaturaOrdem();
+				fila += processo.getFilaOrdemMedia() / processos;
+				latencia += processo.getLatenciaOrdem().percentil(50) / processos;
+			}
+			bancada.medir("multicast.ordemTotal", "processos=" + processos + ",ordem=" + (igual ? "igual" : "divergente")
+					+ ",filaMedia=" + String.format(java.util.Locale.ROOT, "%.1f", fila) + ",p50=" + latencia / 1000 + "us",
+					() -> difundir(multicast, porProcesso));
+			multicast.encerrar();
+		}
+	}
+
+	//cada processo difunde porProcesso mensagens, todos ao mesmo tempo; espera todas as entregas
+	private static long difundir(Multicast multicast, int porProcesso) throws InterruptedException {
+		int processos = multicast.nprocessos;
+		long antes = entregas(multicast);
+		CountDownLatch fim = new CountDownLatch(processos);
+		for (Process processo : multicast.getProcessos()) {
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < porProcesso; i++)
+					processo.orderedBroadcastEvent("x");
+				fim.countDown();
+			});
+			thread.setDaemon(true);
+			thread.start();
+		}
+		fim.await();
+		long total = (long) porProcesso * processos * processos;
+		//a ultima difusao de cada processo so estabiliza quando os outros enviam algo depois dela
+		while (entregas(multicast) - antes < total)
+			Thread.yield();
+		return total;
+	}
+
+	private static long entregas(Multicast multicast) {
+		long total = 0;
+		for (Process processo : multicast.getProcessos())
+			total += processo.getEntregasOrdenadas();
+		return total;
+	}
+}
@@ -0,0 +1,87 @@
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import tokenring.No;
+import tokenring.Quadro;
+
+/*
+ * Protocolo texto (println / readLine) contra o binario (Quadro) no anel: custo de
+ * codificar e decodificar quadros em memoria e voltas do token por segundo em um
+ * anel de 4 nos em localhost.
+ */
+public class BenchProtocoloAnel {
+
+	private static final int QUADROS = 100000;
+	private static final int NOS = 4;
+	private static final long JANELA = 500; //ms por iteracao no anel
+	private static final int PORTA_BASE = 7401;
+
+	public static void main(String[] args) throws Exception {
+		executar(Bancada.criar(args));
+	}
+
+	static void executar(Bancada bancada) throws Exception {
+		ByteArrayOutputStream memoria = new ByteArrayOutputStream(QUADROS * 24);
+		bancada.medir("anel.codificacao", "protocolo=texto,tipo=token", () -> {
+			memoria.reset();
+			PrintStream out = new PrintStream(memoria);
+			for (int i = 0; i < QUADROS; i++)
+				out.println(No.TOKEN + " " + i);
+			out.flush();
+			BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(memoria.toByteArray())));
+			long soma = 0;
+			String linha;
+			while ((linha = in.readLine()) != null)
+				soma += Quadro.deTexto(linha).getSequencia();
+			return soma > 0 ? QUADROS : 0;
+		});
+		bancada.medir("anel.codificacao", "protocolo=binario,tipo=token", () -> {
+			memoria.reset();
+			DataOutputStream out = new DataOutputStream(memoria);
+			for (int i = 0; i < QUADROS; i++)
+				Quadro.token(i).escrever(out);
+			out.flush();
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(memoria.toByteArray()));
+			long soma = 0;
+			Quadro quadro;
+			while ((quadro = Quadro.ler(in)) != null)
+				soma += quadro.getSequencia();
+			return soma > 0 ? QUADROS : 0;
+		});
+
+		int porta = PORTA_BASE;
+		for (boolean binario : new boolean[] { false, true }) {
+			List<InetSocketAddress> membros = No.local(NOS, porta);
+			porta += NOS;
+			List<No> nos = new ArrayList<No>();
+			for (int i = 0; i < NOS; i++) {
+				No no = new No(i, membros, null);
+				no.setBinario(binario);
+				no.escutar();
+				nos.add(no);
+			}
+			for (No no : nos)
+				no.conectar();
+			for (No no : nos)
+				no.iniciar(no.getId() == 0);
+			No observado = nos.get(0);
+			bancada.medir("anel.voltas", "protocolo=" + (binario ? "binario" : "texto") + ",nos=" + NOS, () -> {
+				long antes = observado.getVoltas();
+				Thread.sleep(JANELA);
+				return observado.getVoltas() - antes;
+			});
+			for (No no : nos)
+				no.encerrar();
+		}
+	}
+}
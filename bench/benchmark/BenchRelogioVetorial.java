@@ -0,0 +1,78 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import multicast.Multicast;
+import multicast.Process;
+
+/*
+ * Difusoes entregues por segundo com relogio de Lamport contra relogio vetorial e entrega
+ * causal. Alguns remetentes difundem ao mesmo tempo, cada um usando os seus processos;
+ * a iteracao termina quando todos os processos receberam todas as copias. Uma rodada
+ * inicial, fora da medicao, calcula os bytes alocados pelos remetentes por mensagem.
+ */
+public class BenchRelogioVetorial {
+
+	private static final int ENTREGAS = 200000;
+	private static final int REMETENTES = 4;
+	private static final int[] PROCESSOS = { 16, 128, 1024 };
+
+	public static void main(String[] args) throws Exception {
+		executar(Bancada.criar(args));
+	}
+
+	static void executar(Bancada bancada) throws InterruptedException {
+		for (int processos : PROCESSOS) {
+			for (boolean causal : new boolean[] { false, true }) {
+				Multicast multicast = new Multicast(processos, causal);
+				multicast.setRegistrarEventos(false);
+				int difusoes = Math.max(REMETENTES, ENTREGAS / (processos - 1));
+				AtomicLong alocados = new AtomicLong();
+				long entregas = difundir(multicast, difusoes, alocados);
+				bancada.medir("multicast.broadcastEvent", "relogio=" + (causal ? "vetorial" : "lamport") + ",processos=" + processos
+						+ ",bytesPorMensagem=" + (alocados.get() / entregas), () -> difundir(multicast, difusoes, null));
+				multicast.encerrar();
+			}
+		}
+	}
+
+	//cada remetente difunde a partir dos processos r, r + REMETENTES, ... e espera todas as entregas
+	private static long difundir(Multicast multicast, int difusoes, AtomicLong alocados) throws InterruptedException {
+		int processos = multicast.nprocessos;
+		long antes = recebidos(multicast);
+		CountDownLatch fim = new CountDownLatch(REMETENTES);
+		for (int r = 0; r < REMETENTES; r++) {
+			int primeiro = r;
+			Thread thread = new Thread(() -> {
+				com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+				long inicio = alocados == null ? 0 : mx.getCurrentThreadAllocatedBytes();
+				int p = primeiro;
+				for (int i = primeiro; i < difusoes; i += REMETENTES) {
+					multicast.getProcessos().get(p).broadcastEvent("x");
+					p += REMETENTES;
+					if (p >= processos)
+						p = primeiro;
+				}
+				if (alocados != null)
+					alocados.addAndGet(mx.getCurrentThreadAllocatedBytes() - inicio);
+				fim.countDown();
+			});
+			thread.setDaemon(true);
+			thread.start();
+		}
+		fim.await();
+		long total = (long) difusoes * (processos - 1);
+		while (recebidos(multicast) - antes < total) //espera as caixas esvaziarem e as retidas serem entregues
+			Thread.yield();
+		return total;
+	}
+
+	private static long recebidos(Multicast multicast) {
+		long total = 0;
+		for (Process processo : multicast.getProcessos())
+			total += processo.getRecebidos();
+		return total;
+	}
+}
@@ -0,0 +1,30 @@
+package benchmark;
+
+import multicast.Simulador;
+
+/*
+ * Eventos simulados por segundo (local, envio e recebimento) pelo Simulador de eventos discretos,
+ * sequencial e paralelo conservador. A assinatura dos relogios finais e registrada como parametro:
+ * deve ser a mesma para qualquer numero de particoes.
+ */
+public class BenchSimulador {
+
+	private static final int PROCESSOS = 1000;
+	private static final long DURACAO = 200 * 1000000L; //microssegundos virtuais
+	private static final int[] PARTICOES = { 1, 2, 4 };
+
+	public static void main(String[] args) throws Exception {
+		executar(Bancada.criar(args));
+	}
+
+	static void executar(Bancada bancada) throws InterruptedException {
+		for (int particoes : PARTICOES) {
+			Simulador simulador = new Simulador(PROCESSOS);
+			simulador.setSemente(42);
+			simulador.setParticoes(particoes);
+			simulador.executar(DURACAO);
+			bancada.medir("multicast.simulador", "processos=" + PROCESSOS + ",particoes=" + particoes + ",assinatura="
+					+ Integer.toHexString(simulador.getAssinatura()), () -> simulador.executar(DURACAO));
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package benchmark;
+
+import java.net.InetAddress;
+
+import multicast.ModoExecucao;
+import multicast.Multicast;
+import multicast.Packet;
+import multicast.TransporteUdp;
+
+/*
+ * Pacotes por segundo entre duas metades de um multicast ligadas por IP multicast no loopback,
+ * como se fossem duas JVMs, com e sem lotes de varios pacotes por datagrama. Uma rodada inicial,
+ * fora da medicao, registra como parametros a mediana e o p99 da latencia de recebimento.
+ * Pacotes perdidos pelo UDP nao sao contados, entao perdas aparecem como menor vazao.
+ */
+public class BenchTransporteUdp {
+
+	private static final int PACOTES = 50000;
+	private static final int PROCESSOS = 8;
+	private static final int PORTA = 4447;
+
+	public static void main(String[] args) throws Exception {
+		executar(Bancada.criar(args));
+	}
+
+	static void executar(Bancada bancada) throws Exception {
+		InetAddress grupo = InetAddress.getByName(TransporteUdp.GRUPO);
+		for (long intervalo : new long[] { 0, 500 }) {
+			Multicast origem = new Multicast(PROCESSOS, false, ModoExecucao.TAREFA);
+			Multicast destino = new Multicast(PROCESSOS, false, ModoExecucao.TAREFA);
+			origem.setRegistrarEventos(false);
+			destino.setRegistrarEventos(false);
+			int metade = PROCESSOS / 2;
+			origem.setTransporte(new TransporteUdp(origem, 0, metade - 1, grupo, PORTA, 8192, intervalo));
+			TransporteUdp receptor = new TransporteUdp(destino, metade, PROCESSOS - 1, grupo, PORTA, 8192, intervalo);
+			destino.setTransporte(receptor);
+			enviar(origem, receptor);
+			String latencia = ",p50=" + receptor.getLatenciaRecebimento().percentil(50) / 1000 + "us,p99="
+					+ receptor.getLatenciaRecebimento().percentil(99) / 1000 + "us";
+			bancada.medir("multicast.transporteUdp", "lote=" + (intervalo == 0 ? "nao" : intervalo + "us") + latencia,
+					() -> enviar(origem, receptor));
+			origem.encerrar();
+			destino.encerrar();
+		}
+	}
+
+	//envia PACOTES da primeira metade para a segunda e retorna quantos chegaram
+	private static long enviar(Multicast origem, TransporteUdp receptor) throws InterruptedException {
+		long antes = receptor.getPacotesRecebidos();
+		int metade = PROCESSOS / 2;
+		for (int i = 0; i < PACOTES; i++) {
+			int remetente = i % metade;
+			origem.despachaPacote(new Packet(Packet.MENSAGEM, "x", metade + i % metade, remetente, i), remetente);
+		}
+		((TransporteUdp) origem.getTransporte()).descarregar();
+		//espera os pacotes chegarem ou o fluxo parar por 200 ms (perdas)
+		long ultimo = -1;
+		long parado = System.nanoTime();
+		while (receptor.getPacotesRecebidos() - antes < PACOTES) {
+			long atual = receptor.getPacotesRecebidos();
+			if (atual != ultimo) {
+				ultimo = atual;
+				parado = System.nanoTime();
+			} else if (System.nanoTime() - parado > 200000000L) {
+				break;
+			}
+			Thread.sleep(1);
+		}
+		return receptor.getPacotesRecebidos() - antes;
+	}
+}
@@ -0,0 +1,23 @@
+package benchmark;
+
+/*
+ * Executa os benchmarks da Bancada e escreve os resultados em JSON Lines.
+ * Buffer, ListaProcessos, eleicao e relogio de Lamport sao benchmarks JMH (modulo jmh, ExecutarJmh).
+ * Uso: Executar [-aquecimento N] [-iteracoes N] [-saida arquivo]
+ */
+public class Executar {
+
+	public static void main(String[] args) throws Exception {
+		Bancada bancada = Bancada.criar(args);
+		BenchLeituraListaProcessos.executar(bancada);
+		BenchProtocoloAnel.executar(bancada);
+		BenchExclusaoMutua.executar(bancada);
+		BenchDespacho.executar(bancada);
+		BenchRelogioVetorial.executar(bancada);
+		BenchSimulador.executar(bancada);
+		BenchEscalaMulticast.executar(bancada);
+		BenchTransporteUdp.executar(bancada);
+		BenchDifusao.executar(bancada);
+		BenchOrdemTotal.executar(bancada);
+	}
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import servidor.Buffer;
+import servidor.BufferAnel;
+import servidor.Consumidor;
+import servidor.Eventos;
+import servidor.Produtor;
+import servidor.RegistroEventos;
+
+/*
+ * Vazao de Buffer.set/get (e dos lotes) com diferentes quantidades de produtores e consumidores,
+ * comparando o Buffer de uma posicao com o BufferAnel. Cada operacao e um valor transferido.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BenchBuffer {
+
+	private static final int VALORES = 200000;
+
+	@Param({ "buffer", "anel" })
+	public String tipo;
+
+	//quantidade de produtores e tambem de consumidores
+	@Param({ "1", "2", "4" })
+	public int pares;
+
+	@Param({ "1", "64" })
+	public int lote;
+
+	@Setup
+	public void preparar() {
+		Eventos.usar(RegistroEventos.DESLIGADO);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(VALORES)
+	public long setGet() throws Exception {
+		Buffer buffer = tipo.equals("anel") ? new BufferAnel(1024) : new Buffer();
+		return transferir(buffer, pares, pares, lote);
+	}
+
+	//move VALORES valores de produtores para consumidores e retorna a quantidade transferida
+	static long transferir(Buffer buffer, int produtores, int consumidores, int lote) throws Exception {
+		int porProdutor = VALORES / produtores;
+		int total = porProdutor * produtores;
+		CountDownLatch fim = new CountDownLatch(produtores + consumidores);
+		AtomicReference<Throwable> erro = new AtomicReference<Throwable>();
+		for (int i = 0; i < produtores; i++)
+			iniciar(new Produtor(i, buffer, porProdutor, lote), fim, erro);
+		for (int i = 0; i < consumidores; i++) {
+			//o ultimo consumidor leva o resto da divisao
+			int quantidade = total / consumidores + (i == consumidores - 1 ? total % consumidores : 0);
+			iniciar(new Consumidor(i, buffer, quantidade, lote), fim, erro);
+		}
+		fim.await();
+		if (erro.get() != null)
+			throw new IllegalStateException(erro.get());
+		return total;
+	}
+
+	private static void iniciar(Runnable trabalho, CountDownLatch fim, AtomicReference<Throwable> erro) {
+		Thread thread = new Thread(() -> {
+			try {
+				trabalho.run();
+			} catch (Throwable t) {
+				erro.set(t);
+			} finally {
+				fim.countDown();
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+	}
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import servidor.AlgoritmoEleicao;
+import servidor.EleicaoAnel;
+import servidor.EleicaoBully;
+import servidor.Eventos;
+import servidor.Processo;
+import servidor.RegistroEventos;
+import servidor.ResultadoEleicao;
+
+/*
+ * Latencia de uma eleicao por troca de mensagens (o algoritmo usado por Eleicao.eleger, sem a
+ * escrita no console) para Chang-Roberts e Bully com diferentes tamanhos de cluster.
+ * O Bully troca O(n^2) mensagens, entao as iteracoes com muitos processos fazem poucas eleicoes.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BenchEleicao {
+
+	@Param({ "anel", "bully" })
+	public String algoritmo;
+
+	@Param({ "10", "100", "300", "1000" })
+	public int processos;
+
+	private AlgoritmoEleicao eleicao;
+	private List<Processo> lista;
+
+	@Setup
+	public void preparar() {
+		Eventos.usar(RegistroEventos.DESLIGADO);
+		eleicao = algoritmo.equals("bully") ? new EleicaoBully() : new EleicaoAnel();
+		lista = new ArrayList<Processo>();
+		for (int i = 1; i <= processos; i++) {
+			Processo processo = new Processo();
+			processo.setPidId(i);
+			lista.add(processo);
+		}
+	}
+
+	@Benchmark
+	public ResultadoEleicao eleger() {
+		return eleicao.eleger(lista, 0);
+	}
+}
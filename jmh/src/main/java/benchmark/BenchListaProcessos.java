@@ -0,0 +1,93 @@
+package benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import servidor.Eventos;
+import servidor.ListaProcessos;
+import servidor.Processo;
+import servidor.RegistroEventos;
+
+/*
+ * Custo de add, remove, get e buscar na ListaProcessos de 10^3 a 10^6 processos, no modo com
+ * monitor e no modo de leitura otimizada, que copia o indice a cada escrita.
+ * Cada benchmark parte de uma lista nova; as escritas mantem o tamanho constante.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BenchListaProcessos {
+
+	@Param({ "monitor", "copia" })
+	public String modo;
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int tamanho;
+
+	private ListaProcessos lista;
+	private int proximoPid;
+
+	@Setup
+	public void preparar() {
+		Eventos.usar(RegistroEventos.DESLIGADO);
+		lista = preencher(modo.equals("copia"), tamanho);
+		proximoPid = tamanho + 1;
+	}
+
+	@Benchmark
+	public Integer get() {
+		return lista.get(ThreadLocalRandom.current().nextInt(tamanho)).getPidId();
+	}
+
+	@Benchmark
+	public Processo buscar() {
+		return lista.buscar(proximoPid - 1 - ThreadLocalRandom.current().nextInt(tamanho));
+	}
+
+	//adiciona um processo no fim e remove outro ao acaso (como NovoProcesso / EliminarProcesso)
+	@Benchmark
+	public void addRemove() {
+		lista.add(novo(proximoPid++));
+		lista.remove(ThreadLocalRandom.current().nextInt(lista.size()));
+	}
+
+	//adiciona no fim e remove o primeiro pela referencia do processo
+	@Benchmark
+	public void addRemoveProcesso() {
+		lista.add(novo(proximoPid++));
+		lista.remove(lista.first());
+	}
+
+	static ListaProcessos preencher(boolean leituraOtimizada, int tamanho) {
+		ListaProcessos lista = new ListaProcessos(false);
+		for (int i = 1; i <= tamanho; i++)
+			lista.add(novo(i));
+		if (!leituraOtimizada)
+			return lista;
+		//copia para o modo otimizado sem pagar uma copia por add
+		ListaProcessos otimizada = new ListaProcessos(true);
+		otimizada.setPrimeiro(lista.getPrimeiro());
+		return otimizada;
+	}
+
+	static Processo novo(int pid) {
+		Processo processo = new Processo();
+		processo.setPidId(pid);
+		return processo;
+	}
+}
@@ -0,0 +1,90 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongUnaryOperator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import multicast.Multicast;
+import multicast.Process;
+
+/*
+ * Custo de multicast.Process.increamentClockTime (compareAndSet) sem disputa e com varias
+ * threads atualizando o relogio do mesmo processo (eventos locais e recebimentos concorrentes),
+ * comparado com a versao anterior, sincronizada no monitor do processo.
+ * Um metodo por quantidade de threads, pois o JMH nao aceita @Threads como parametro.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BenchRelogioLamport {
+
+	//implementacao anterior do relogio, mantida como referencia
+	private static final class RelogioMonitor {
+		private long tempoLocal;
+
+		synchronized long increamentClockTime(long tempoRetorno) {
+			tempoLocal = tempoLocal > tempoRetorno ? tempoLocal : tempoRetorno;
+			return ++tempoLocal;
+		}
+	}
+
+	//alterna eventos locais e recebimentos em cada thread
+	@State(Scope.Thread)
+	public static class Sequencia {
+		private long i;
+
+		long proximo() {
+			long atual = i++;
+			return (atual & 1) == 0 ? -1 : atual;
+		}
+	}
+
+	@Param({ "cas", "monitor" })
+	public String relogio;
+
+	private LongUnaryOperator incrementar;
+
+	@Setup
+	public void preparar() {
+		if (relogio.equals("monitor"))
+			incrementar = new RelogioMonitor()::increamentClockTime;
+		else
+			incrementar = new Process(new Multicast(1), 0)::increamentClockTime;
+	}
+
+	@Benchmark
+	@Threads(1)
+	public long umaThread(Sequencia sequencia) {
+		return incrementar.applyAsLong(sequencia.proximo());
+	}
+
+	@Benchmark
+	@Threads(2)
+	public long duasThreads(Sequencia sequencia) {
+		return incrementar.applyAsLong(sequencia.proximo());
+	}
+
+	@Benchmark
+	@Threads(4)
+	public long quatroThreads(Sequencia sequencia) {
+		return incrementar.applyAsLong(sequencia.proximo());
+	}
+
+	@Benchmark
+	@Threads(8)
+	public long oitoThreads(Sequencia sequencia) {
+		return incrementar.applyAsLong(sequencia.proximo());
+	}
+}
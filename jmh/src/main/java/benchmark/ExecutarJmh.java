@@ -0,0 +1,35 @@
+package benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Executa os benchmarks JMH com as opcoes de linha de comando do JMH, mas grava os resultados
+ * em JSON (jmh-resultados.json) se -rf / -rff nao forem informados.
+ * Uso: java -jar jmh/target/benchmarks.jar [opcoes do JMH] [regex dos benchmarks]
+ */
+public class ExecutarJmh {
+
+	public static final String RESULTADOS = "jmh-resultados.json";
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions linha = new CommandLineOptions(args);
+		if (linha.shouldHelp()) {
+			linha.showHelp();
+			return;
+		}
+		if (linha.shouldList()) {
+			new Runner(linha).list();
+			return;
+		}
+		ChainedOptionsBuilder opcoes = new OptionsBuilder().parent(linha);
+		if (!linha.getResultFormat().hasValue())
+			opcoes.resultFormat(ResultFormatType.JSON);
+		if (!linha.getResult().hasValue())
+			opcoes.result(RESULTADOS);
+		new Runner(opcoes.build()).run();
+	}
+}
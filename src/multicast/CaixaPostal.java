@@ -0,0 +1,111 @@
+package multicast;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Caixa de mensagens de um processo: fila sem bloqueio com varios produtores e um unico
+ * consumidor (MPSC, fila encadeada de Vyukov). Quem envia faz um getAndSet na cauda e,
+ * se o dono esta estacionado, o acorda; o dono retira as mensagens na sua propria thread.
+ * Sem thread propria (usarExecutor), quem deposita numa caixa ociosa agenda uma tarefa que a
+ * esvazia; o indicador agendada garante uma unica tarefa, e portanto um unico consumidor, por vez.
+ */
+public class CaixaPostal {
+
+	//cartas entregues por tarefa antes de devolver a thread ao executor
+	private static final int LOTE = 64;
+	private static final VarHandle AGENDADA;
+	static {
+		try {
+			AGENDADA = MethodHandles.lookup().findVarHandle(CaixaPostal.class, "agendada", int.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static final class Carta {
+		final Packet packet;
+		final int remetente;
+		volatile Carta proxima;
+
+		Carta(Packet packet, int remetente) {
+			this.packet = packet;
+			this.remetente = remetente;
+		}
+	}
+
+	private final AtomicReference<Carta> cauda;
+	private Carta cabeca; //apenas o consumidor mexe, sempre aponta para a ultima carta ja retirada
+	private volatile Thread dono;
+	private volatile boolean esperando;
+	//modo sem thread propria
+	private Executor executor;
+	private Runnable esvaziar;
+	private volatile int agendada;
+
+	public CaixaPostal() {
+		cabeca = new Carta(null, -1);
+		cauda = new AtomicReference<Carta>(cabeca);
+	}
+
+	//nao bloqueia: pode ser chamado por qualquer thread
+	public void depositar(Packet packet, int remetente) {
+		Carta carta = new Carta(packet, remetente);
+		Carta anterior = cauda.getAndSet(carta);
+		anterior.proxima = carta;
+		if (executor != null)
+			agendar();
+		else if (esperando)
+			LockSupport.unpark(dono);
+	}
+
+	//passa a esvaziar a caixa com tarefas no executor em vez de uma thread dedicada; chamar antes do primeiro deposito
+	void usarExecutor(Executor executor, Process processo) {
+		this.esvaziar = () -> esvaziar(processo);
+		this.executor = executor;
+	}
+
+	private void agendar() {
+		if (agendada == 0 && AGENDADA.compareAndSet(this, 0, 1))
+			executor.execute(esvaziar);
+	}
+
+	private void esvaziar(Process processo) {
+		for (int i = 0; i < LOTE && entregar(processo); i++)
+			;
+		agendada = 0;
+		//uma carta ligada depois da ultima verificacao nao viu a tarefa ativa, entao agenda de novo aqui
+		if (cabeca.proxima != null)
+			agendar();
+	}
+
+	//retira a proxima carta e entrega ao processo; false se a caixa esta vazia
+	boolean entregar(Process processo) {
+		Carta proxima = cabeca.proxima;
+		if (proxima == null)
+			return false;
+		cabeca = proxima;
+		Packet packet = proxima.packet;
+		processo.receiveEvent(packet, proxima.remetente);
+		return true;
+	}
+
+	//estaciona ate chegar uma nova carta (ou acordar); roda so na thread do dono
+	void aguardar() {
+		dono = Thread.currentThread();
+		esperando = true;
+		if (cabeca.proxima == null) //confere de novo depois de anunciar a espera
+			LockSupport.park(this);
+		esperando = false;
+	}
+
+	//tira o dono da espera, por exemplo para encerrar
+	void acordar() {
+		Thread t = dono;
+		if (t != null)
+			LockSupport.unpark(t);
+	}
+}
@@ -0,0 +1,12 @@
+package multicast;
+
+//Quando uma mensagem recebida por um processo e entregue a ele
+public enum Entrega {
+
+	//assim que chega, relogio de Lamport apenas
+	IMEDIATA,
+	//difusoes com relogio vetorial, retidas ate as que as causaram serem entregues
+	CAUSAL,
+	//difusoes em ordem total por (time, remetente), retidas ate ficarem estaveis pelas confirmacoes
+	TOTAL
+}
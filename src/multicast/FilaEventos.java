@@ -0,0 +1,163 @@
+package multicast;
+
+import java.util.Arrays;
+
+/*
+ * Fila de prioridade de eventos do Simulador e do TransporteSimulado, ordenada por (tempo, ordem),
+ * sem objetos por evento: os campos ficam em vetores indexados por posicao e o heap guarda apenas
+ * as posicoes. Posicoes liberadas sao reaproveitadas. remetente -1 indica a proxima acao do
+ * processo; caso contrario o evento e o recebimento de uma mensagem com o carimbo do remetente
+ * e, no TransporteSimulado, o proprio pacote.
+ */
+final class FilaEventos {
+
+	private long[] tempo;
+	private long[] ordem;
+	private long[] carimbo;
+	private int[] processo;
+	private int[] remetente;
+	private Packet[] pacote;
+	private int[] heap;
+	private int tamanho;
+	private int[] livres;
+	private int nlivres;
+	private int usadas;
+
+	FilaEventos(int capacidade) {
+		capacidade = Math.max(16, capacidade);
+		tempo = new long[capacidade];
+		ordem = new long[capacidade];
+		carimbo = new long[capacidade];
+		processo = new int[capacidade];
+		remetente = new int[capacidade];
+		pacote = new Packet[capacidade];
+		heap = new int[capacidade];
+		livres = new int[capacidade];
+	}
+
+	boolean vazia() {
+		return tamanho == 0;
+	}
+
+	int tamanho() {
+		return tamanho;
+	}
+
+	//tempo do proximo evento ou Long.MAX_VALUE se a fila esta vazia
+	long menorTempo() {
+		return tamanho == 0 ? Long.MAX_VALUE : tempo[heap[0]];
+	}
+
+	void inserir(long tempo, long ordem, int processo, int remetente, long carimbo) {
+		inserir(tempo, ordem, processo, remetente, carimbo, null);
+	}
+
+	void inserir(long tempo, long ordem, int processo, int remetente, long carimbo, Packet pacote) {
+		int posicao;
+		if (nlivres > 0) {
+			posicao = livres[--nlivres];
+		} else {
+			if (usadas == this.tempo.length)
+				crescer();
+			posicao = usadas++;
+		}
+		this.tempo[posicao] = tempo;
+		this.ordem[posicao] = ordem;
+		this.processo[posicao] = processo;
+		this.remetente[posicao] = remetente;
+		this.carimbo[posicao] = carimbo;
+		this.pacote[posicao] = pacote;
+		subir(tamanho++, posicao);
+	}
+
+	//retira o menor evento e devolve a sua posicao; os campos valem ate liberar(posicao)
+	int remover() {
+		int primeiro = heap[0];
+		int ultimo = heap[--tamanho];
+		if (tamanho > 0)
+			descer(0, ultimo);
+		return primeiro;
+	}
+
+	void liberar(int posicao) {
+		pacote[posicao] = null;
+		livres[nlivres++] = posicao;
+	}
+
+	long tempo(int posicao) {
+		return tempo[posicao];
+	}
+
+	long ordem(int posicao) {
+		return ordem[posicao];
+	}
+
+	long carimbo(int posicao) {
+		return carimbo[posicao];
+	}
+
+	int processo(int posicao) {
+		return processo[posicao];
+	}
+
+	int remetente(int posicao) {
+		return remetente[posicao];
+	}
+
+	Packet pacote(int posicao) {
+		return pacote[posicao];
+	}
+
+	//move todos os eventos para outra fila, sem ordenar, e esvazia esta
+	void transferir(FilaEventos destino) {
+		for (int i = 0; i < tamanho; i++) {
+			int p = heap[i];
+			destino.inserir(tempo[p], ordem[p], processo[p], remetente[p], carimbo[p], pacote[p]);
+		}
+		Arrays.fill(pacote, 0, usadas, null);
+		tamanho = 0;
+		nlivres = 0;
+		usadas = 0;
+	}
+
+	private boolean antes(int a, int b) {
+		return tempo[a] < tempo[b] || (tempo[a] == tempo[b] && ordem[a] < ordem[b]);
+	}
+
+	private void subir(int i, int posicao) {
+		while (i > 0) {
+			int pai = (i - 1) >>> 1;
+			if (!antes(posicao, heap[pai]))
+				break;
+			heap[i] = heap[pai];
+			i = pai;
+		}
+		heap[i] = posicao;
+	}
+
+	private void descer(int i, int posicao) {
+		int metade = tamanho >>> 1;
+		while (i < metade) {
+			int filho = 2 * i + 1;
+			if (filho + 1 < tamanho && antes(heap[filho + 1], heap[filho]))
+				filho++;
+			if (!antes(heap[filho], posicao))
+				break;
+			heap[i] = heap[filho];
+			i = filho;
+		}
+		heap[i] = posicao;
+	}
+
+	private void crescer() {
+		int capacidade = tempo.length * 2;
+		tempo = Arrays.copyOf(tempo, capacidade);
+		ordem = Arrays.copyOf(ordem, capacidade);
+		carimbo = Arrays.copyOf(carimbo, capacidade);
+		processo = Arrays.copyOf(processo, capacidade);
+		remetente = Arrays.copyOf(remetente, capacidade);
+		pacote = Arrays.copyOf(pacote, capacidade);
+		heap = Arrays.copyOf(heap, capacidade);
+		livres = Arrays.copyOf(livres, capacidade);
+	}
+}
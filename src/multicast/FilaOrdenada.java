@@ -0,0 +1,102 @@
+package multicast;
+
+import java.util.Arrays;
+
+/*
+ * Fila de retencao da ordem total: heap binario em vetores paralelos ordenado por (tempo, remetente).
+ * As chaves ficam em vetores primitivos e so o pacote e uma referencia, entao inserir e remover nao
+ * alocam nada alem do crescimento ocasional dos vetores. Usada sob a trava de envio ordenado do processo.
+ */
+final class FilaOrdenada {
+
+	private long[] tempo = new long[16];
+	private int[] remetente = new int[16];
+	private long[] chegada = new long[16]; //Multicast.nanos da insercao, para a latencia de entrega
+	private Packet[] pacote = new Packet[16];
+	private int tamanho;
+
+	boolean vazia() {
+		return tamanho == 0;
+	}
+
+	int tamanho() {
+		return tamanho;
+	}
+
+	void inserir(Packet packet, long agora) {
+		if (tamanho == tempo.length) {
+			int capacidade = tamanho * 2;
+			tempo = Arrays.copyOf(tempo, capacidade);
+			remetente = Arrays.copyOf(remetente, capacidade);
+			chegada = Arrays.copyOf(chegada, capacidade);
+			pacote = Arrays.copyOf(pacote, capacidade);
+		}
+		long t = packet.getTime();
+		int r = packet.getRemetenteId();
+		int i = tamanho++;
+		while (i > 0) {
+			int pai = (i - 1) >>> 1;
+			if (!antes(t, r, tempo[pai], remetente[pai]))
+				break;
+			mover(pai, i);
+			i = pai;
+		}
+		colocar(i, t, r, agora, packet);
+	}
+
+	long tempoPrimeiro() {
+		return tempo[0];
+	}
+
+	int remetentePrimeiro() {
+		return remetente[0];
+	}
+
+	long chegadaPrimeiro() {
+		return chegada[0];
+	}
+
+	Packet removerPrimeiro() {
+		Packet primeiro = pacote[0];
+		int ultimo = --tamanho;
+		long t = tempo[ultimo];
+		int r = remetente[ultimo];
+		long c = chegada[ultimo];
+		Packet p = pacote[ultimo];
+		pacote[ultimo] = null;
+		if (ultimo > 0) {
+			int i = 0;
+			int metade = tamanho >>> 1;
+			while (i < metade) {
+				int filho = 2 * i + 1;
+				if (filho + 1 < tamanho && antes(tempo[filho + 1], remetente[filho + 1], tempo[filho], remetente[filho]))
+					filho++;
+				if (!antes(tempo[filho], remetente[filho], t, r))
+					break;
+				mover(filho, i);
+				i = filho;
+			}
+			colocar(i, t, r, c, p);
+		}
+		return primeiro;
+	}
+
+	//(tempo, remetente) e unico: o remetente nunca repete um tempo
+	private static boolean antes(long t1, int r1, long t2, int r2) {
+		return t1 < t2 || (t1 == t2 && r1 < r2);
+	}
+
+	private void mover(int de, int para) {
+		tempo[para] = tempo[de];
+		remetente[para] = remetente[de];
+		chegada[para] = chegada[de];
+		pacote[para] = pacote[de];
+	}
+
+	private void colocar(int i, long t, int r, long c, Packet p) {
+		tempo[i] = t;
+		remetente[i] = r;
+		chegada[i] = c;
+		pacote[i] = p;
+	}
+}
@@ -0,0 +1,70 @@
+package multicast;
+
+/*
+ * Histograma de latencias em nanossegundos com faixas logaritmicas: 16 faixas lineares em cada
+ * potencia de 2, erro relativo de no maximo 1/16 sem guardar as amostras.
+ */
+public class Histograma {
+
+	private static final int SUBFAIXAS = 16;
+	private final long[] contagem = new long[60 * SUBFAIXAS];
+	private long total;
+	private long soma;
+	private long maximo;
+
+	public synchronized void registrar(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		contagem[indice(nanos)]++;
+		total++;
+		soma += nanos;
+		if (nanos > maximo)
+			maximo = nanos;
+	}
+
+	public synchronized long getTotal() {
+		return total;
+	}
+
+	public synchronized long getMediaNanos() {
+		return total == 0 ? 0 : soma / total;
+	}
+
+	public synchronized long getMaximoNanos() {
+		return maximo;
+	}
+
+	//limite inferior da faixa que contem o percentil (0 a 100)
+	public synchronized long percentil(double percentil) {
+		if (total == 0)
+			return 0;
+		long alvo = (long) Math.ceil(total * percentil / 100);
+		long acumulado = 0;
+		for (int i = 0; i < contagem.length; i++) {
+			acumulado += contagem[i];
+			if (acumulado >= Math.max(1, alvo))
+				return inicio(i);
+		}
+		return maximo;
+	}
+
+	private static int indice(long valor) {
+		if (valor < SUBFAIXAS)
+			return (int) valor;
+		int expoente = 63 - Long.numberOfLeadingZeros(valor);
+		return (expoente - 3) * SUBFAIXAS + ((int) (valor >>> (expoente - 4)) & (SUBFAIXAS - 1));
+	}
+
+	private static long inicio(int indice) {
+		if (indice < SUBFAIXAS)
+			return indice;
+		int expoente = indice / SUBFAIXAS + 3;
+		return (long) (SUBFAIXAS + indice % SUBFAIXAS) << (expoente - 4);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("[amostras=%d, media=%dus, p50=%dus, p99=%dus, p99.9=%dus, maximo=%dus]", total, getMediaNanos() / 1000,
+				percentil(50) / 1000, percentil(99) / 1000, percentil(99.9) / 1000, maximo / 1000);
+	}
+}
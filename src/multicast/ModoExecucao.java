@@ -0,0 +1,27 @@
+package multicast;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Como os processos do multicast e as suas caixas de mensagens sao executados
+public enum ModoExecucao {
+
+	//uma thread de plataforma para cada processo e outra para a sua caixa de mensagens, como no codigo original
+	THREAD,
+	//cada evento de um processo e cada esvaziamento de caixa e uma tarefa num ForkJoinPool com roubo de trabalho
+	TAREFA,
+	//uma virtual thread por processo e caixas esvaziadas como tarefas; exige JDK 21 ou superior, senao usa TAREFA
+	VIRTUAL,
+	//tempo virtual: eventos e entregas numa fila de eventos, executados em ordem pela thread de Multicast.simular
+	SIMULADO;
+
+	//executor de uma virtual thread por tarefa, ou null se a JVM nao tem virtual threads
+	static ExecutorService virtuais() {
+		try {
+			//por reflexao para o projeto continuar compilando com JDK 17
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
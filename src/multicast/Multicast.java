@@ -1,52 +1,374 @@
 package multicast;
 
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 //Classe que cria, organiza os processos e realiza eventos (localizar, enviar, receber)
 public class Multicast {
 
 	public int nprocessos;
+	//grupo predefinido com todos os processos
+	public static final int GRUPO_TODOS = 0;
 	//Lista de processos
 	private final java.util.List<Process> processos;
+	//Processo na secao critica (-1 se nenhum) e quantas vezes a exclusao mutua foi violada
+	private final java.util.concurrent.atomic.AtomicInteger naSecao = new java.util.concurrent.atomic.AtomicInteger(-1);
+	private final java.util.concurrent.atomic.AtomicInteger violacoes = new java.util.concurrent.atomic.AtomicInteger();
+	private volatile boolean registrarEventos = true;
+	//Entrega das difusoes: imediata, causal (relogio vetorial) ou em ordem total
+	private final Entrega entrega;
+	private final boolean causal;
+	private volatile boolean secaoCritica = true;
+	private volatile boolean ativo = true;
+	//Execucao dos processos e das caixas; pool e relogio existem so nos modos TAREFA e VIRTUAL
+	private final ModoExecucao modo;
+	private final ForkJoinPool pool;
+	private ScheduledExecutorService relogio;
+	private ExecutorService virtuais;
+	//fila de eventos e relogio virtual do modo SIMULADO
+	private TransporteSimulado simulacao;
+	//cada processo recebe uma sequencia dividida deste gerador
+	private final SplittableRandom aleatorio;
+	private volatile Transporte transporte = new TransporteLocal(this);
+	//membros de cada grupo de difusao, indexados pelo id do grupo; substituido inteiro a cada definicao
+	private volatile int[][] grupos;
+	//envios aleatorios de Process.sendEvent viram difusoes para todos
+	private volatile boolean difusao;
 	
 	//Cria e configura os processos 
 	public Multicast(int nprocessos) {
+		this(nprocessos, false);
+	}
+
+	//causal: cada envio e uma difusao com relogio vetorial, entregue respeitando a causalidade
+	public Multicast(int nprocessos, boolean causal) {
+		this(nprocessos, causal, ModoExecucao.THREAD);
+	}
+
+	//TAREFA e VIRTUAL nao criam threads por processo e permitem centenas de milhares de processos
+	public Multicast(int nprocessos, boolean causal, ModoExecucao modo) {
+		this(nprocessos, causal ? Entrega.CAUSAL : Entrega.IMEDIATA, modo);
+	}
+
+	public Multicast(int nprocessos, Entrega entrega, ModoExecucao modo) {
+		this(nprocessos, entrega, modo, new SplittableRandom());
+	}
+
+	//semente dos geradores dos processos; no modo SIMULADO a mesma semente repete a mesma execucao
+	public Multicast(int nprocessos, Entrega entrega, ModoExecucao modo, long semente) {
+		this(nprocessos, entrega, modo, new SplittableRandom(semente));
+	}
+
+	private Multicast(int nprocessos, Entrega entrega, ModoExecucao modo, SplittableRandom aleatorio) {
 		this.nprocessos = nprocessos;
-		this.processos = new java.util.ArrayList<Process>();
+		this.aleatorio = aleatorio;
+		this.entrega = entrega;
+		this.causal = entrega == Entrega.CAUSAL;
+		this.modo = modo;
+		this.pool = modo == ModoExecucao.THREAD || modo == ModoExecucao.SIMULADO ? null
+				: new ForkJoinPool(Runtime.getRuntime().availableProcessors(), ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+		int[] todos = new int[nprocessos];
+		for (int i = 0; i < nprocessos; i++)
+			todos[i] = i;
+		this.grupos = new int[][] { todos };
+		this.processos = new java.util.ArrayList<Process>(nprocessos);
 		for (int i = 0; i < nprocessos; i++) {
 			this.processos.add(new Process(this, i));
 		}
+		if (modo == ModoExecucao.SIMULADO) {
+			//as caixas sao esvaziadas pela propria simulacao, a cada entrega
+			simulacao = new TransporteSimulado(this);
+			transporte = simulacao;
+			return;
+		}
+		for (Process process : processos) {
+			if (pool == null)
+				process.iniciarCaixa();
+			else
+				process.iniciarCaixa(pool);
+		}
+	}
+
+	//Troca o transporte dos pacotes, por exemplo por um TransporteUdp; chamar antes de iniciar
+	public void setTransporte(Transporte transporte) {
+		if (simulacao != null)
+			throw new IllegalStateException("O modo SIMULADO usa o seu proprio transporte");
+		this.transporte = transporte;
+	}
+
+	public Transporte getTransporte() {
+		return transporte;
+	}
+
+	//Inicia os eventos aleatorios dos processos desta JVM conforme o modo de execucao
+	public void iniciar() {
+		java.util.List<Process> locais = new java.util.ArrayList<Process>();
+		for (Process process : processos)
+			if (transporte.local(process.getProcessoId()))
+				locais.add(process);
+		if (modo == ModoExecucao.SIMULADO) {
+			//so agenda o primeiro evento de cada processo; quem executa e simular
+			for (Process process : locais)
+				simulacao.agendarPasso(process, 0);
+			return;
+		}
+		if (modo == ModoExecucao.THREAD) {
+			for (Process process : locais)
+				new Thread(process).start();
+			return;
+		}
+		if (modo == ModoExecucao.VIRTUAL) {
+			virtuais = ModoExecucao.virtuais();
+			if (virtuais != null) {
+				for (Process process : locais)
+					virtuais.execute(process);
+				return;
+			}
+			System.err.println("Virtual threads indisponiveis nesta JVM, usando tarefas");
+		}
+		//TAREFA: uma thread so para os atrasos; cada evento roda no pool
+		relogio = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+			Thread thread = new Thread(tarefa, "multicast-relogio");
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (Process process : locais)
+			pool.execute(process::passo);
+	}
+
+	//modo SIMULADO: executa os eventos ate o instante virtual fim, em microssegundos, na thread de quem chama
+	public long simular(long fim) {
+		if (simulacao == null)
+			throw new IllegalStateException("Multicast nao esta no modo SIMULADO");
+		return simulacao.executar(fim);
+	}
+
+	//agenda o proximo evento do processo nos modos TAREFA e SIMULADO; atraso em ms
+	void agendarPasso(Process process, long atraso) {
+		if (simulacao != null) {
+			simulacao.agendarPasso(process, atraso * 1000);
+			return;
+		}
+		relogio.schedule(() -> pool.execute(process::passo), atraso, TimeUnit.MILLISECONDS);
+	}
+
+	//relogio das latencias medidas: o tempo virtual no modo SIMULADO, senao System.nanoTime
+	long nanos() {
+		return simulacao != null ? simulacao.getAgora() * 1000 : System.nanoTime();
+	}
+
+	SplittableRandom dividirAleatorio() {
+		synchronized (aleatorio) {
+			return aleatorio.split();
+		}
 	}
 	
-	//Entrega as mensagens do evento conforme os detalhes do pacote
-	public synchronized void despachaPacote(Packet packet, int senderProcessId) {
-		Process process = processos.get(packet.getProcessoId());
-		process.receiveEvent(packet, senderProcessId);
+	//Entrega o pacote pelo transporte na caixa do processo receptor, que o recebe na sua propria thread; nao bloqueia
+	public void despachaPacote(Packet packet, int senderProcessId) {
+		transporte.enviar(packet, senderProcessId);
+	}
+
+	//Entrega o mesmo pacote (Packet.difusao) a todos os membros do seu grupo, menos o remetente; nao bloqueia
+	public void difundePacote(Packet packet, int senderProcessId) {
+		int[][] grupos = this.grupos;
+		if (packet.getGrupo() < 0 || packet.getGrupo() >= grupos.length) //-1: pacote sem grupo, use despachaPacote
+			throw new IllegalArgumentException("Grupo de difusao inexistente: " + packet.getGrupo());
+		transporte.difundir(packet, senderProcessId, grupos[packet.getGrupo()]);
+	}
+
+	//Cria um grupo de difusao e retorna o seu id; com TransporteUdp, definir os mesmos grupos em todas as JVMs
+	public synchronized int definirGrupo(int... membros) {
+		for (int membro : membros)
+			if (membro < 0 || membro >= nprocessos)
+				throw new IllegalArgumentException("Processo inexistente no grupo: " + membro);
+		int[][] novos = java.util.Arrays.copyOf(grupos, grupos.length + 1);
+		novos[grupos.length] = membros.clone();
+		grupos = novos;
+		return grupos.length - 1;
+	}
+
+	//membros do grupo; o vetor e compartilhado e nao deve ser alterado
+	public int[] getMembros(int grupo) {
+		return grupos[grupo];
+	}
+
+	public void setDifusao(boolean difusao) {
+		this.difusao = difusao;
+	}
+
+	public boolean isDifusao() {
+		return difusao;
+	}
+
+	//Para os eventos dos processos, as threads das caixas de mensagens e os executores
+	public void encerrar() {
+		ativo = false;
+		transporte.encerrar();
+		for (Process process : processos)
+			process.encerrarCaixa();
+		if (relogio != null)
+			relogio.shutdownNow();
+		if (virtuais != null)
+			virtuais.shutdownNow();
+		if (pool != null)
+			pool.shutdownNow();
+	}
+
+	public boolean isAtivo() {
+		return ativo;
+	}
+
+	//false limita os eventos a local e envio; com muitos processos cada secao critica custa 2(n-1) mensagens
+	public void setSecaoCritica(boolean secaoCritica) {
+		this.secaoCritica = secaoCritica;
+	}
+
+	public boolean isSecaoCritica() {
+		return secaoCritica;
+	}
+
+	public ModoExecucao getModo() {
+		return modo;
+	}
+
+	//false evita imprimir cada mensagem recebida, por exemplo em benchmarks
+	public void setRegistrarEventos(boolean registrarEventos) {
+		this.registrarEventos = registrarEventos;
+	}
+
+	public boolean isRegistrarEventos() {
+		return registrarEventos;
+	}
+
+	public boolean isCausal() {
+		return causal;
+	}
+
+	public boolean isOrdemTotal() {
+		return entrega == Entrega.TOTAL;
+	}
+
+	public Entrega getEntrega() {
+		return entrega;
 	}
 	
+	public java.util.List<Process> getProcessos() {
+		return processos;
+	}
+
+	//verifica que um unico processo esta na secao critica
+	void entrarSecaoCritica(int processoId) {
+		int outro = naSecao.getAndSet(processoId);
+		if (outro != -1) {
+			violacoes.incrementAndGet();
+			System.err.println("Exclusao mutua violada: [P" + processoId + "] entrou com [P" + outro + "] na secao critica");
+		}
+	}
+
+	void sairSecaoCritica(int processoId) {
+		naSecao.compareAndSet(processoId, -1);
+	}
+
+	public int getViolacoes() {
+		return violacoes.get();
+	}
+
 	public static void main(String[] args) {
 		
 		//Caso nao seja fornecido os 2 parametros, exibe a mensagem abaixo
 		if(args.length < 2){
-			System.out.println("Atencao: Forneça os parametros para numero de processos(int) e duracao da simulacao em segundos(int).");
+			System.out.println("Atencao: Forneça os parametros para numero de processos(int) e duracao da simulacao em segundos(int),"
+					+ " e opcionalmente causal | total, difusao, thread | tarefa | virtual | simulado, sem-secao, silencioso, semente=<n>"
+					+ " e udp=<primeiro>-<ultimo> (processos executados nesta JVM, os demais em outras JVMs do host).");
 			System.exit(0);
 		}
 		int processCount = Integer.parseInt(args[0]);
 		int duration = Integer.parseInt(args[1]);
+		java.util.List<String> opcoes = java.util.Arrays.asList(args).subList(2, args.length);
+		ModoExecucao modo = opcoes.contains("tarefa") ? ModoExecucao.TAREFA
+				: opcoes.contains("virtual") ? ModoExecucao.VIRTUAL
+				: opcoes.contains("simulado") ? ModoExecucao.SIMULADO : ModoExecucao.THREAD;
+		Long semente = null;
+		for (String opcao : opcoes)
+			if (opcao.startsWith("semente="))
+				semente = Long.parseLong(opcao.substring(8));
 
 		
 		long timestamp = System.currentTimeMillis();
 		System.out.println("Configurando a simulação do ambiente Multicast com [" + processCount + "] processos e duração de execução de [" + duration + "] segundos.");
-		Multicast dcSystem = new Multicast(processCount);
+		Entrega entrega = opcoes.contains("total") ? Entrega.TOTAL : opcoes.contains("causal") ? Entrega.CAUSAL : Entrega.IMEDIATA;
+		Multicast dcSystem = semente != null ? new Multicast(processCount, entrega, modo, semente)
+				: new Multicast(processCount, entrega, modo);
+		dcSystem.setSecaoCritica(!opcoes.contains("sem-secao"));
+		dcSystem.setRegistrarEventos(!opcoes.contains("silencioso"));
+		dcSystem.setDifusao(opcoes.contains("difusao"));
+		for (String opcao : opcoes) {
+			if (opcao.startsWith("udp=")) {
+				if (modo == ModoExecucao.SIMULADO) {
+					System.out.println("O modo simulado roda todos os processos nesta JVM, sem udp");
+					System.exit(1);
+				}
+				String[] faixa = opcao.substring(4).split("-");
+				try {
+					dcSystem.setTransporte(new TransporteUdp(dcSystem, Integer.parseInt(faixa[0]), Integer.parseInt(faixa[1])));
+				} catch (java.io.IOException e) {
+					System.out.println("Nao foi possivel entrar no grupo multicast: " + e);
+					System.exit(1);
+				}
+			}
+		}
 		
 		//Inicializa cada processo individualmente
-		for(Process process : dcSystem.processos) {
-			new Thread(process).start();
-		}
+		dcSystem.iniciar();
 		
 		// Aguarda a duração especificada para executar a simulação e depois encerra.
-		try {
-			Thread.sleep(duration * 1000);
-		} catch (InterruptedException e) { e.printStackTrace(); }
+		if (modo == ModoExecucao.SIMULADO) {
+			//a duracao e em tempo virtual e a simulacao roda nesta thread, sem esperar
+			dcSystem.simular(duration * 1000000L);
+		} else {
+			try {
+				Thread.sleep(duration * 1000);
+			} catch (InterruptedException e) { e.printStackTrace(); }
+		}
 		System.out.println("Finalizando a simulação de ambiente de computação distribuída, com duração de [" + ((System.currentTimeMillis() - timestamp) / 1000) + "] segundos.");
+		long mensagens = 0, aquisicoes = 0, eventos = 0, recebidos = 0;
+		for (Process process : dcSystem.processos) {
+			if (dcSystem.isRegistrarEventos())
+				System.out.println(process.getExclusao());
+			mensagens += process.getExclusao().getMensagens();
+			aquisicoes += process.getExclusao().getAquisicoes();
+			eventos += process.getEventos();
+			recebidos += process.getRecebidos();
+		}
+		System.gc(); //para o heap em uso refletir o estado dos processos e nao o lixo dos pacotes
+		Runtime runtime = Runtime.getRuntime();
+		System.out.println("Modo " + modo + ": " + eventos + " eventos, " + recebidos + " pacotes recebidos, heap em uso "
+				+ (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + " MB");
+		System.out.println("Mensagens por secao critica: " + (aquisicoes == 0 ? 0 : mensagens / (double) aquisicoes));
+		System.out.println("Violacoes da exclusao mutua: " + dcSystem.getViolacoes());
+		if (dcSystem.isOrdemTotal())
+			for (Process process : dcSystem.processos)
+				if (dcSystem.transporte.local(process.getProcessoId()))
+					System.out.println("Processo [P" + process.getProcessoId() + "] entregas em ordem total: " + process.getEntregasOrdenadas()
+							+ ", assinatura da ordem " + Long.toHexString(process.getAssinaturaOrdem()) + ", fila de retencao media "
+							+ String.format("%.1f", process.getFilaOrdemMedia()) + " maxima " + process.getMaiorFilaOrdem()
+							+ "\n  latencia de entrega " + process.getLatenciaOrdem());
+		if (dcSystem.transporte instanceof TransporteUdp)
+			System.out.println(dcSystem.transporte);
+		if (dcSystem.simulacao != null) {
+			long assinatura = 0;
+			for (Process process : dcSystem.processos)
+				assinatura = assinatura * 31 + process.getRelogio();
+			System.out.println(dcSystem.simulacao + "\nAssinatura dos relogios de Lamport: " + Long.toHexString(assinatura));
+		}
+		if (dcSystem.causal)
+			for (Process process : dcSystem.processos)
+				System.out.println("Processo [P" + process.getProcessoId() + "] relogio vetorial " + java.util.Arrays.toString(process.getVetor())
+						+ ", mensagens retidas: " + process.getTotalRetidos() + ", maior fila de retidas: " + process.getMaiorRetidos());
 		System.exit(0);
 	}
 }
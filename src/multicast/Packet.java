@@ -1,33 +1,166 @@
 package multicast;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Formato binario usado pelo TransporteUdp, sem serializacao Java:
+ * [tipo byte][receptor int][grupo int][remetente int][time long][tamanho da mensagem short, 0xFFFF se null][mensagem UTF-8]
+ * [tamanho do vetor short, 0xFFFF se null][vetor int...]
+ * Os tamanhos sao lidos sem sinal, ate MAXIMO.
+ * A mensagem viaja como texto (toString).
+ */
 public class Packet {
+	//Tipos de pacote: mensagem comum ou pedido / resposta da exclusao mutua (RicartAgrawala)
+	public static final int MENSAGEM = 0;
+	public static final int PEDIDO = 1;
+	public static final int RESPOSTA = 2;
+	//Ordem total: difusao retida ate ficar estavel e confirmacao de recebimento que a estabiliza
+	public static final int ORDENADA = 3;
+	public static final int CONFIRMACAO = 4;
+	//bytes do formato binario sem mensagem e sem vetor
+	public static final int CABECALHO = 1 + 4 + 4 + 4 + 8 + 2 + 2;
+	//maior mensagem (bytes UTF-8) ou vetor que cabe no tamanho de 16 bits; 0xFFFF marca null
+	public static final int MAXIMO = 0xFFFE;
+	private static final int NULO = 0xFFFF;
+	//receptor de um pacote difundido a um grupo: cada membro recebe o mesmo objeto
+	public static final int TODOS = -1;
+
+	private final int tipo;
 	private final Object messagem;
-	//Processo receptor
+	//Processo receptor, ou TODOS numa difusao
 	private final int processoId;
+	//Grupo de uma difusao (Multicast.definirGrupo), -1 se o pacote tem um unico receptor
+	private final int grupo;
+	//Processo remetente, -1 se nao informado
+	private final int remetenteId;
 	//Tempo de retorno do processo remetente.
-	private final int time;
+	private final long time;
+	//Relogio vetorial do remetente no envio (modo causal), compartilhado por todas as copias de uma difusao
+	private final int[] vetor;
+	//mensagem codificada, calculada uma vez mesmo quando o pacote e compartilhado por uma difusao
+	private byte[] texto;
+
+	public Packet(Object messagem, int processId, long time) {
+		this(MENSAGEM, messagem, processId, -1, time);
+	}
+
+	public Packet(int tipo, Object messagem, int processId, int remetenteId, long time) {
+		this(tipo, messagem, processId, remetenteId, time, null);
+	}
+
+	public Packet(int tipo, Object messagem, int processId, int remetenteId, long time, int[] vetor) {
+		this(tipo, messagem, processId, -1, remetenteId, time, vetor);
+	}
 
-	public Packet(Object messagem, int processId, int time) {
+	private Packet(int tipo, Object messagem, int processId, int grupo, int remetenteId, long time, int[] vetor) {
+		this.vetor = vetor;
+		this.tipo = tipo;
 		this.messagem = messagem;
 		this.processoId = processId;
+		this.grupo = grupo;
+		this.remetenteId = remetenteId;
 		this.time = time;
 	}
 
+	//um unico pacote, imutavel, entregue a todos os membros do grupo menos o remetente
+	public static Packet difusao(int tipo, Object messagem, int grupo, int remetenteId, long time, int[] vetor) {
+		return new Packet(tipo, messagem, TODOS, grupo, remetenteId, time, vetor);
+	}
+
+	public int getTipo() {
+		return tipo;
+	}
+
 	public Object getMensagem() {
 		return messagem;
 	}
 
-	//Processo receptor
+	//Processo receptor, ou TODOS numa difusao
 	public int getProcessoId() {
 		return processoId;
 	}
 
+	public int getGrupo() {
+		return grupo;
+	}
+
+	public boolean isDifusao() {
+		return grupo >= 0;
+	}
+
+	//Processo remetente
+	public int getRemetenteId() {
+		return remetenteId;
+	}
+
 	//Tempo de retorno do processo remetente.
-	public int getTime() {
+	public long getTime() {
 		return time;
 	}
 
+	//Relogio vetorial do remetente ou null fora do modo causal; nao deve ser alterado
+	public int[] getVetor() {
+		return vetor;
+	}
+
+	//bytes ocupados por este pacote no formato binario
+	public int tamanhoCodificado() {
+		byte[] texto = texto();
+		if (texto != null && texto.length > MAXIMO)
+			throw new IllegalArgumentException("Mensagem maior que " + MAXIMO + " bytes: " + texto.length);
+		if (vetor != null && vetor.length > MAXIMO)
+			throw new IllegalArgumentException("Vetor maior que " + MAXIMO + " posicoes: " + vetor.length);
+		return CABECALHO + (texto == null ? 0 : texto.length) + (vetor == null ? 0 : 4 * vetor.length);
+	}
+
+	public void escrever(ByteBuffer buffer) {
+		tamanhoCodificado(); //valida os tamanhos antes de escrever qualquer byte
+		byte[] texto = texto();
+		buffer.put((byte) tipo);
+		buffer.putInt(processoId);
+		buffer.putInt(grupo);
+		buffer.putInt(remetenteId);
+		buffer.putLong(time);
+		buffer.putShort((short) (texto == null ? NULO : texto.length));
+		if (texto != null)
+			buffer.put(texto);
+		buffer.putShort((short) (vetor == null ? NULO : vetor.length));
+		if (vetor != null)
+			for (int v : vetor)
+				buffer.putInt(v);
+	}
+
+	public static Packet ler(ByteBuffer buffer) {
+		int tipo = buffer.get();
+		int processoId = buffer.getInt();
+		int grupo = buffer.getInt();
+		int remetenteId = buffer.getInt();
+		long time = buffer.getLong();
+		int tamanho = buffer.getShort() & 0xFFFF;
+		String mensagem = null;
+		if (tamanho != NULO) {
+			byte[] texto = new byte[tamanho];
+			buffer.get(texto);
+			mensagem = new String(texto, StandardCharsets.UTF_8);
+		}
+		int dimensao = buffer.getShort() & 0xFFFF;
+		int[] vetor = null;
+		if (dimensao != NULO) {
+			vetor = new int[dimensao];
+			for (int i = 0; i < dimensao; i++)
+				vetor[i] = buffer.getInt();
+		}
+		return new Packet(tipo, mensagem, processoId, grupo, remetenteId, time, vetor);
+	}
+
+	private byte[] texto() {
+		if (texto == null && messagem != null)
+			texto = messagem.toString().getBytes(StandardCharsets.UTF_8);
+		return texto;
+	}
+
 	public String toString() {
-		return String.format("Pacote [messagem=%s, recebendo processoId=%s, tempo de retorno time=%s]", messagem, processoId, time);
+		return String.format("Pacote [tipo=%s, messagem=%s, recebendo processoId=%s, grupo=%s, remetenteId=%s, tempo de retorno time=%s]", tipo, messagem, processoId, grupo, remetenteId, time);
 	}
 }
@@ -1,77 +1,501 @@
 package multicast;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 /*
  * Classe que representa um processo independente dentro do multicast.
  * Realiza eventos (local, enviar, receber) aleatoriamente até ser interrompido.
  */
 public class Process implements Runnable {
 
-	private int tempoLocal;
+	//tentativas com a caixa vazia antes de estacionar a thread da caixa
+	private static final int ESPERA_ATIVA = 32;
+
+	//relogio de Lamport, atualizado apenas por compareAndSet via TEMPO_LOCAL
+	private volatile long tempoLocal;
+	private static final VarHandle TEMPO_LOCAL;
+	static {
+		try {
+			TEMPO_LOCAL = MethodHandles.lookup().findVarHandle(Process.class, "tempoLocal", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
 	private final int processoId;
 	private final Multicast multicast;
-	private final java.util.Random random;
+	//sequencia propria, dividida do gerador do Multicast; usada por uma thread ou tarefa de cada vez
+	private final SplittableRandom random;
+	private final RicartAgrawala exclusao;
+	//mensagens recebidas, entregues na thread da caixa deste processo
+	private final CaixaPostal caixa = new CaixaPostal();
+	private volatile boolean caixaAtiva = true;
+	private volatile long recebidos;
+	private volatile long eventos;
+	//modo causal: relogio vetorial (protegido pelo proprio vetor) e difusoes que chegaram antes das que as causaram
+	private final int[] vetor;
+	private final java.util.List<Packet> retidos;
+	private volatile long totalRetidos;
+	private volatile int maiorRetidos;
+	/*
+	 * modo de ordem total: difusoes retidas por (time, remetente), maior tempo ja recebido de cada
+	 * processo e a trava que mantem a ordem dos envios igual a ordem dos tempos (canais FIFO).
+	 * fila, ultimoDe e as metricas so sao usados sob essa trava.
+	 */
+	private final FilaOrdenada ordenadas;
+	private final long[] ultimoDe;
+	private final Object envioOrdenado;
+	private final Histograma latenciaOrdem;
+	private volatile long entregasOrdenadas;
+	private volatile long assinaturaOrdem;
+	private volatile int maiorFilaOrdem;
+	private long somaFilaOrdem;
+	private long amostrasFilaOrdem;
 
 	public Process(Multicast multicast, int processoId) {
 		tempoLocal = 0; 
 		this.processoId = processoId;
 		this.multicast = multicast;
-		random = new java.util.Random();
+		random = multicast.dividirAleatorio();
+		exclusao = new RicartAgrawala(this, multicast);
+		vetor = multicast.isCausal() ? new int[multicast.nprocessos] : null;
+		retidos = multicast.isCausal() ? new java.util.ArrayList<Packet>() : null;
+		boolean total = multicast.isOrdemTotal();
+		ordenadas = total ? new FilaOrdenada() : null;
+		ultimoDe = total ? new long[multicast.nprocessos] : null;
+		envioOrdenado = total ? new Object() : null;
+		latenciaOrdem = total ? new Histograma() : null;
 	}
-	
-	public void run() {
-		System.out.println("Processo [P" + processoId + "] iniciado ...");
-		while (true) {
-			// Realize um evento aleatório (local ou externo).
-			int eventoRamdomico = random.nextInt(2);
-			switch (eventoRamdomico) {
-				case 0: {
-					// realiza um evento local
-					localEvent();
-					break;
-				}
-				case 1: {
-					// realiza o evento de enviar
-					sendEvent();
-					break;
+
+	public int getProcessoId() {
+		return processoId;
+	}
+
+	//exclusao mutua deste processo: adquirir / liberar e metricas
+	public RicartAgrawala getExclusao() {
+		return exclusao;
+	}
+
+	public CaixaPostal getCaixa() {
+		return caixa;
+	}
+
+	//pacotes ja entregues a este processo
+	public long getRecebidos() {
+		return recebidos;
+	}
+
+	//relogio de Lamport atual
+	public long getRelogio() {
+		return tempoLocal;
+	}
+
+	//eventos locais, envios e secoes criticas ja realizados
+	public long getEventos() {
+		return eventos;
+	}
+
+	//copia do relogio vetorial ou null fora do modo causal
+	public int[] getVetor() {
+		if (vetor == null)
+			return null;
+		synchronized (vetor) {
+			return vetor.clone();
+		}
+	}
+
+	//difusoes que precisaram esperar por outras antes de serem entregues
+	public long getTotalRetidos() {
+		return totalRetidos;
+	}
+
+	public int getMaiorRetidos() {
+		return maiorRetidos;
+	}
+
+	//difusoes entregues em ordem total, inclusive as proprias
+	public long getEntregasOrdenadas() {
+		return entregasOrdenadas;
+	}
+
+	//resumo da sequencia entregue; processos com o mesmo numero de entregas tem a mesma assinatura
+	public long getAssinaturaOrdem() {
+		return assinaturaOrdem;
+	}
+
+	//tempo de cada difusao na fila de retencao, da chegada a entrega
+	public Histograma getLatenciaOrdem() {
+		return latenciaOrdem;
+	}
+
+	public int getMaiorFilaOrdem() {
+		return maiorFilaOrdem;
+	}
+
+	//tamanho medio da fila de retencao visto por cada difusao que chega
+	public double getFilaOrdemMedia() {
+		if (envioOrdenado == null)
+			return 0;
+		synchronized (envioOrdenado) {
+			return amostrasFilaOrdem == 0 ? 0 : (double) somaFilaOrdem / amostrasFilaOrdem;
+		}
+	}
+
+	//inicia a thread que entrega as mensagens da caixa a este processo
+	void iniciarCaixa() {
+		Thread t = new Thread(() -> {
+			int vazias = 0;
+			while (caixaAtiva) {
+				if (caixa.entregar(this))
+					vazias = 0;
+				else if (++vazias < ESPERA_ATIVA)
+					Thread.yield(); //a proxima mensagem costuma chegar logo, evita estacionar
+				else {
+					caixa.aguardar();
+					vazias = 0;
 				}
 			}
+		}, "caixa-P" + processoId);
+		t.setDaemon(true);
+		t.start();
+	}
+
+	//esvazia a caixa com tarefas no executor, sem thread propria
+	void iniciarCaixa(Executor executor) {
+		caixa.usarExecutor(executor, this);
+	}
+
+	void encerrarCaixa() {
+		caixaAtiva = false;
+		caixa.acordar();
+	}
+	
+	public void run() {
+		if (multicast.isRegistrarEventos())
+			System.out.println("Processo [P" + processoId + "] iniciado ...");
+		while (multicast.isAtivo()) {
+			if (!evento())
+				return;
 			try {
-				// Adiciona atraso aleatório entre eventos para facilitar a visualização
-				long randomDelay = System.currentTimeMillis() % (random.nextInt(1000) + 1000);
-				Thread.sleep(randomDelay);
+				Thread.sleep(atraso());
 			} catch (InterruptedException e) { e.printStackTrace(); }
 		}
 	}
 
+	//modo TAREFA: um evento e o agendamento do proximo, sem ocupar uma thread entre eventos
+	void passo() {
+		if (multicast.isAtivo() && evento())
+			multicast.agendarPasso(this, atraso());
+	}
+
+	/*
+	 * modo SIMULADO: um evento no instante virtual atual e o agendamento do proximo. A secao critica
+	 * nao bloqueia: o pedido e enviado e o proximo evento so e agendado quando a ultima resposta
+	 * chega (secaoCriticaConcedida), como a thread que espera em adquirir nos outros modos.
+	 */
+	void passoSimulado() {
+		if (!multicast.isAtivo())
+			return;
+		eventos++;
+		switch (random.nextInt(multicast.isSecaoCritica() ? 3 : 2)) {
+			case 0:
+				localEvent();
+				break;
+			case 1:
+				sendEvent();
+				break;
+			case 2:
+				if (multicast.isRegistrarEventos())
+					System.out.println("Processo [P" + processoId + "] pede a secao critica");
+				exclusao.pedir();
+				return;
+		}
+		multicast.agendarPasso(this, atraso());
+	}
+
+	//modo SIMULADO: chamado pela exclusao mutua ao receber a ultima resposta
+	void secaoCriticaConcedida() {
+		naSecaoCritica();
+		if (multicast.isAtivo())
+			multicast.agendarPasso(this, atraso());
+	}
+
+	//realiza um evento aleatório (local ou externo); false se foi interrompido
+	private boolean evento() {
+		eventos++; //um evento por vez em cada processo
+		int eventoRamdomico = random.nextInt(multicast.isSecaoCritica() ? 3 : 2);
+		switch (eventoRamdomico) {
+			case 0: {
+				// realiza um evento local
+				localEvent();
+				break;
+			}
+			case 1: {
+				// realiza o evento de enviar
+				sendEvent();
+				break;
+			}
+			case 2: {
+				// entra na secao critica
+				try {
+					if (ForkJoinTask.inForkJoinPool()) {
+						//a espera pelas respostas bloqueia a thread: o pool cria outra para as caixas continuarem
+						ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+							public boolean block() throws InterruptedException {
+								criticalSectionEvent();
+								return true;
+							}
+
+							public boolean isReleasable() {
+								return false;
+							}
+						});
+					} else {
+						criticalSectionEvent();
+					}
+				} catch (InterruptedException e) {
+					return false;
+				}
+				break;
+			}
+		}
+		return true;
+	}
+
+	//atraso aleatório entre eventos para facilitar a visualização, em ms
+	private long atraso() {
+		if (multicast.getModo() == ModoExecucao.SIMULADO) //mesma faixa, sem depender do relogio real
+			return random.nextLong(random.nextInt(1000) + 1000);
+		return System.currentTimeMillis() % (random.nextInt(1000) + 1000);
+	}
+
 	public void localEvent() {
 		// Incrementa a hora do relógio local em 1, sem tempo de retorno, por isso -1
-		int time = increamentClockTime(-1);
-		System.out.println("Processo [P" + processoId + "] realiza um evento local. Hora do relógio é: " + time);
+		long time = increamentClockTime(-1);
+		if (multicast.isRegistrarEventos())
+			System.out.println("Processo [P" + processoId + "] realiza um evento local. Hora do relógio é: " + time);
 	}
 
 	public void sendEvent() {
 		Object message = "exclusao mutua - multicast";
 		
-		// Obtém um ID de processo aleatório para enviar o evento, excluindo seu próprio ID.
-		int randomProcessoId = random.nextInt(multicast.nprocessos);
-		while(randomProcessoId == processoId){
-			randomProcessoId = random.nextInt(multicast.nprocessos);
+		if (ordenadas != null) {
+			if (multicast.isRegistrarEventos())
+				System.out.println("Processo [P" + processoId + "] difunde um evento em ordem total");
+			orderedBroadcastEvent(message);
+			return;
+		}
+
+		if (vetor != null || multicast.isDifusao()) {
+			if (multicast.isRegistrarEventos())
+				System.out.println("Processo [P" + processoId + "] difunde um evento para todos os processos");
+			broadcastEvent(message);
+			return;
 		}
+
+		// Obtém um ID de processo aleatório para enviar o evento, excluindo seu próprio ID:
+		// sorteia entre os outros n - 1 e pula o proprio id, sem repetir o sorteio.
+		int randomProcessoId = random.nextInt(multicast.nprocessos - 1);
+		if (randomProcessoId >= processoId)
+			randomProcessoId++;
 		
 		// Incrementa a hora do relógio local em 1
-		int time = increamentClockTime(-1);
-		System.out.println("Processo [P" + processoId + "] envia um evento para o processo [P"+ randomProcessoId +"] com adição de tempo de: " + time);
+		long time = increamentClockTime(-1);
+		if (multicast.isRegistrarEventos())
+			System.out.println("Processo [P" + processoId + "] envia um evento para o processo [P"+ randomProcessoId +"] com adição de tempo de: " + time);
 		Packet packet = new Packet(message, randomProcessoId, time);
 		
 		// Envia pacotes para entregar
 		multicast.despachaPacote(packet, processoId);
 	}
 
+	//envia a mensagem a todos os outros processos; no modo causal leva o relogio vetorial
+	public void broadcastEvent(Object message) {
+		multicastEvent(Multicast.GRUPO_TODOS, message);
+	}
+
+	/*
+	 * Envia a mensagem aos outros membros do grupo num unico Packet compartilhado por todos.
+	 * A entrega causal vale para difusoes a GRUPO_TODOS: o relogio vetorial supoe que todo processo
+	 * recebe todas as difusoes, entao as difusoes a outros grupos nao levam vetor.
+	 */
+	public void multicastEvent(int grupo, Object message) {
+		long time = increamentClockTime(-1);
+		int[] marca = null;
+		if (vetor != null && grupo == Multicast.GRUPO_TODOS) {
+			synchronized (vetor) {
+				vetor[processoId]++;
+				marca = vetor.clone();
+			}
+		}
+		multicast.difundePacote(Packet.difusao(Packet.MENSAGEM, message, grupo, processoId, time, marca), processoId);
+	}
+
+	/*
+	 * Difusao em ordem total (Lamport): a mensagem vai para a propria fila de retencao e para todos
+	 * os outros, que respondem com uma CONFIRMACAO. Sob a trava o tempo e obtido e o pacote retido
+	 * e depositado, entao cada caixa recebe as mensagens deste processo em ordem de tempo e a
+	 * propria fila nunca deixa de ter uma difusao propria mais antiga que as recebidas.
+	 */
+	public void orderedBroadcastEvent(Object message) {
+		synchronized (envioOrdenado) {
+			long time = increamentClockTime(-1);
+			Packet packet = Packet.difusao(Packet.ORDENADA, message, Multicast.GRUPO_TODOS, processoId, time, null);
+			reter(packet);
+			multicast.difundePacote(packet, processoId);
+		}
+	}
+
+	private void confirmar() {
+		synchronized (envioOrdenado) {
+			long time = increamentClockTime(-1);
+			multicast.difundePacote(Packet.difusao(Packet.CONFIRMACAO, null, Multicast.GRUPO_TODOS, processoId, time, null), processoId);
+		}
+	}
+
+	public void criticalSectionEvent() throws InterruptedException {
+		if (multicast.isRegistrarEventos())
+			System.out.println("Processo [P" + processoId + "] pede a secao critica");
+		exclusao.adquirir();
+		naSecaoCritica();
+	}
+
+	//ja com a exclusao adquirida
+	private void naSecaoCritica() {
+		try {
+			multicast.entrarSecaoCritica(processoId);
+			long time = increamentClockTime(-1);
+			if (multicast.isRegistrarEventos())
+				System.out.println("Processo [P" + processoId + "] esta na secao critica. Hora do relógio é: " + time);
+		} finally {
+			multicast.sairSecaoCritica(processoId);
+			exclusao.liberar();
+		}
+	}
+
 	//o metodo é executado quando o processo recebe qualquer evento de outros processos no ambiente multicast.
 	public void receiveEvent(Packet packet, int senderprocessoId) {
+		if (packet.getTipo() == Packet.ORDENADA || packet.getTipo() == Packet.CONFIRMACAO)
+			receberOrdenada(packet);
+		else if (vetor != null && packet.getVetor() != null)
+			receberCausal(packet);
+		else
+			entregar(packet, senderprocessoId);
+	}
+
+	/*
+	 * Entrega causal de Birman-Schiper-Stephenson: a difusao de j e entregue quando e a proxima
+	 * de j (vetor[j] + 1) e tudo o que j ja tinha visto de outros processos tambem ja foi entregue
+	 * aqui; do contrario fica retida. Cada entrega pode liberar difusoes retidas.
+	 * Roda apenas na thread da caixa de mensagens.
+	 */
+	private void receberCausal(Packet packet) {
+		if (!entregavel(packet)) {
+			retidos.add(packet);
+			totalRetidos++;
+			if (retidos.size() > maiorRetidos)
+				maiorRetidos = retidos.size();
+			return;
+		}
+		entregarCausal(packet);
+		boolean entregou = !retidos.isEmpty();
+		while (entregou) {
+			entregou = false;
+			for (java.util.Iterator<Packet> i = retidos.iterator(); i.hasNext();) {
+				Packet retido = i.next();
+				if (entregavel(retido)) {
+					i.remove();
+					entregarCausal(retido);
+					entregou = true;
+				}
+			}
+		}
+	}
+
+	private boolean entregavel(Packet packet) {
+		int[] marca = packet.getVetor();
+		int remetente = packet.getRemetenteId();
+		synchronized (vetor) {
+			if (marca[remetente] != vetor[remetente] + 1)
+				return false;
+			for (int k = 0; k < marca.length; k++)
+				if (k != remetente && marca[k] > vetor[k])
+					return false;
+		}
+		return true;
+	}
+
+	private void entregarCausal(Packet packet) {
+		int remetente = packet.getRemetenteId();
+		synchronized (vetor) {
+			vetor[remetente] = packet.getVetor()[remetente];
+		}
+		entregar(packet, remetente);
+	}
+
+	/*
+	 * A difusao no inicio da fila e estavel quando todos os outros processos ja enviaram algo com
+	 * (time, id) maior: pelos canais FIFO nada com tempo menor pode chegar depois. O remetente da
+	 * propria difusao nao precisa de confirmacao, e as deste processo ja entram na fila ao serem enviadas.
+	 */
+	private void receberOrdenada(Packet packet) {
+		synchronized (envioOrdenado) {
+			int remetente = packet.getRemetenteId();
+			increamentClockTime(packet.getTime());
+			ultimoDe[remetente] = packet.getTime();
+			if (packet.getTipo() == Packet.ORDENADA) {
+				reter(packet);
+				confirmar();
+			}
+			entregarEstaveis();
+		}
+	}
+
+	private void reter(Packet packet) {
+		ordenadas.inserir(packet, multicast.nanos());
+		somaFilaOrdem += ordenadas.tamanho();
+		amostrasFilaOrdem++;
+		if (ordenadas.tamanho() > maiorFilaOrdem)
+			maiorFilaOrdem = ordenadas.tamanho();
+	}
+
+	private void entregarEstaveis() {
+		while (!ordenadas.vazia() && estavel(ordenadas.tempoPrimeiro(), ordenadas.remetentePrimeiro())) {
+			latenciaOrdem.registrar(multicast.nanos() - ordenadas.chegadaPrimeiro());
+			Packet entregue = ordenadas.removerPrimeiro();
+			assinaturaOrdem = assinaturaOrdem * 31 + entregue.getTime() * multicast.nprocessos + entregue.getRemetenteId();
+			entregasOrdenadas++;
+			recebidos++;
+			if (multicast.isRegistrarEventos())
+				System.out.println("Processo [P" + processoId + "] entrega em ordem total a mensagem do processo [P"
+						+ entregue.getRemetenteId() + "] com tempo " + entregue.getTime());
+		}
+	}
+
+	private boolean estavel(long time, int remetente) {
+		for (int k = 0; k < ultimoDe.length; k++) {
+			if (k == processoId || k == remetente)
+				continue;
+			if (ultimoDe[k] < time || (ultimoDe[k] == time && k < remetente))
+				return false;
+		}
+		return true;
+	}
+
+	private void entregar(Packet packet, int senderprocessoId) {
 		// Incrementar a hora do relógio local em 1, com relação ao tempo de retorno do processo remetente
-		int time = increamentClockTime(packet.getTime());
-		System.out.println("Processo [P" + processoId + "] recebe um evento do processo\n" + 
+		long time = increamentClockTime(packet.getTime());
+		recebidos++; //so a thread da caixa escreve
+		if (packet.getTipo() != Packet.MENSAGEM) {
+			exclusao.receber(packet); //pedido / resposta da exclusao mutua
+			return;
+		}
+		if (multicast.isRegistrarEventos())
+			System.out.println("Processo [P" + processoId + "] recebe um evento do processo\n" + 
 				" [P"+ senderprocessoId +"] e a hora do relógio é: " + time);
 	}
 	
@@ -79,11 +503,18 @@ public class Process implements Runnable {
 	 * Incrementa o horário do relógio local, aplicando regras conforme mencionado abaixo:
 	 * 		1. Define a hora do relógio local para o máximo de hora local e hora de partida.
 	 * 		2. Incrementa o relógio local calculado em 1 e retorna.
-	 *  OBS: Este é um método sincronizado para aumentar com segurança o tempo.
+	 *  OBS: Sem monitor: calcula o novo tempo e o publica com compareAndSet, repetindo se
+	 *  outra thread (evento local ou a caixa de mensagens) alterou o relogio no meio.
+	 *  O relogio e long para nao estourar em simulacoes longas.
 	 */
-	public synchronized int increamentClockTime(int tempoRetorno){
-		tempoLocal = tempoLocal > tempoRetorno ? tempoLocal : tempoRetorno;
-		return ++tempoLocal;
+	public long increamentClockTime(long tempoRetorno){
+		long atual;
+		long novo;
+		do {
+			atual = tempoLocal;
+			novo = (atual > tempoRetorno ? atual : tempoRetorno) + 1;
+		} while (!TEMPO_LOCAL.compareAndSet(this, atual, novo));
+		return novo;
 	}
 
 }
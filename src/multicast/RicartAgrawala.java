@@ -0,0 +1,154 @@
+package multicast;
+
+/*
+ * Exclusao mutua de Ricart-Agrawala sobre o relogio de Lamport do processo.
+ * Para entrar na secao critica o processo envia um PEDIDO com seu tempo a todos os outros e
+ * espera uma RESPOSTA de cada um. Quem recebe um pedido responde na hora, a menos que esteja
+ * na secao critica ou tenha um pedido mais antigo (tempo, id); nesse caso o pedido vai para a
+ * fila de respostas adiadas, que e esvaziada ao liberar. Sao 2(n-1) mensagens por secao critica.
+ * As mensagens sao enviadas fora do monitor; pedidos e respostas chegam pela thread da caixa
+ * de mensagens do processo, que acorda quem espera em adquirir. No modo SIMULADO ninguem espera:
+ * pedir so envia o pedido e a ultima resposta chama Process.secaoCriticaConcedida.
+ */
+public class RicartAgrawala {
+
+	private enum Estado { LIVRE, QUERENDO, NA_SECAO }
+
+	private final Process processo;
+	private final Multicast multicast;
+	private Estado estado = Estado.LIVRE;
+	private long tempoPedido;
+	private long inicioPedido;
+	private int respostasPendentes;
+	//fila de respostas adiadas: ids dos processos que esperam a liberacao; cresce sob demanda
+	private int[] adiados = new int[4];
+	private int quantidadeAdiados;
+
+	//metricas
+	private long aquisicoes;
+	private long somaLatenciaNanos;
+	private long maiorLatenciaNanos;
+	private long mensagens;
+
+	public RicartAgrawala(Process processo, Multicast multicast) {
+		this.processo = processo;
+		this.multicast = multicast;
+	}
+
+	//bloqueia ate o processo poder entrar na secao critica
+	public void adquirir() throws InterruptedException {
+		pedir();
+		synchronized (this) {
+			while (respostasPendentes > 0)
+				wait();
+			conceder();
+		}
+	}
+
+	//envia o pedido sem esperar pelas respostas
+	void pedir() {
+		long tempo;
+		synchronized (this) {
+			if (estado != Estado.LIVRE)
+				throw new IllegalStateException("Processo [P" + processo.getProcessoId() + "] ja pediu a secao critica");
+			estado = Estado.QUERENDO;
+			inicioPedido = multicast.nanos();
+			tempo = processo.increamentClockTime(-1);
+			tempoPedido = tempo;
+			respostasPendentes = multicast.nprocessos - 1;
+			mensagens += multicast.nprocessos - 1;
+		}
+		//um unico pedido para todos os outros processos
+		multicast.difundePacote(Packet.difusao(Packet.PEDIDO, null, Multicast.GRUPO_TODOS, processo.getProcessoId(), tempo, null),
+				processo.getProcessoId());
+	}
+
+	//chamado sob o monitor quando a ultima resposta chegou
+	private void conceder() {
+		estado = Estado.NA_SECAO;
+		long latencia = multicast.nanos() - inicioPedido;
+		aquisicoes++;
+		somaLatenciaNanos += latencia;
+		if (latencia > maiorLatenciaNanos)
+			maiorLatenciaNanos = latencia;
+	}
+
+	//sai da secao critica e responde os pedidos adiados
+	public void liberar() {
+		int[] responder;
+		synchronized (this) {
+			if (estado != Estado.NA_SECAO)
+				throw new IllegalStateException("Processo [P" + processo.getProcessoId() + "] nao esta na secao critica");
+			estado = Estado.LIVRE;
+			responder = java.util.Arrays.copyOf(adiados, quantidadeAdiados);
+			quantidadeAdiados = 0;
+		}
+		for (int destino : responder)
+			enviar(Packet.RESPOSTA, destino, processo.increamentClockTime(-1));
+	}
+
+	//chamado por Process.receiveEvent depois de atualizar o relogio
+	public void receber(Packet packet) {
+		int remetente = packet.getRemetenteId();
+		if (packet.getTipo() == Packet.RESPOSTA) {
+			boolean concedida = false;
+			synchronized (this) {
+				if (estado == Estado.QUERENDO && --respostasPendentes == 0) {
+					if (multicast.getModo() == ModoExecucao.SIMULADO) {
+						conceder();
+						concedida = true;
+					} else {
+						notifyAll();
+					}
+				}
+			}
+			if (concedida)
+				processo.secaoCriticaConcedida();
+		} else if (packet.getTipo() == Packet.PEDIDO) {
+			boolean adiar;
+			synchronized (this) {
+				//o pedido mais antigo vence; empate de tempo e decidido pelo menor id
+				adiar = estado == Estado.NA_SECAO || (estado == Estado.QUERENDO && (tempoPedido < packet.getTime()
+						|| (tempoPedido == packet.getTime() && processo.getProcessoId() < remetente)));
+				if (adiar) {
+					if (quantidadeAdiados == adiados.length)
+						adiados = java.util.Arrays.copyOf(adiados, adiados.length * 2);
+					adiados[quantidadeAdiados++] = remetente;
+				}
+			}
+			if (!adiar)
+				enviar(Packet.RESPOSTA, remetente, processo.increamentClockTime(-1));
+		}
+	}
+
+	private void enviar(int tipo, int destino, long tempo) {
+		synchronized (this) {
+			mensagens++;
+		}
+		multicast.despachaPacote(new Packet(tipo, null, destino, processo.getProcessoId(), tempo), processo.getProcessoId());
+	}
+
+	public synchronized long getAquisicoes() {
+		return aquisicoes;
+	}
+
+	public synchronized long getLatenciaMediaNanos() {
+		return aquisicoes == 0 ? 0 : somaLatenciaNanos / aquisicoes;
+	}
+
+	public synchronized long getMaiorLatenciaNanos() {
+		return maiorLatenciaNanos;
+	}
+
+	//pedidos e respostas enviados por este processo
+	public synchronized long getMensagens() {
+		return mensagens;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("RicartAgrawala [P%d, aquisicoes=%d, latenciaMedia=%dus, maiorLatencia=%dus, mensagens=%d, mensagens/secao=%.1f]",
+				processo.getProcessoId(), aquisicoes, getLatenciaMediaNanos() / 1000, maiorLatenciaNanos / 1000, mensagens,
+				aquisicoes == 0 ? 0.0 : (double) mensagens / aquisicoes);
+	}
+}
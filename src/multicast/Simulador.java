@@ -0,0 +1,268 @@
+package multicast;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/*
+ * Modelo de eventos discretos da carga aleatoria de eventos locais e envios, separado dos
+ * processos reais: cada processo e apenas uma posicao nos vetores de relogio e gerador, e nao ha
+ * Process, Packet, CaixaPostal nem secao critica. Serve para medir a carga e a simulacao paralela
+ * com milhoes de processos; para executar os proprios processos em tempo virtual use o modo
+ * ModoExecucao.SIMULADO do Multicast.
+ * Cada processo tem a sua proxima acao agendada numa fila de eventos e um relogio virtual em
+ * microssegundos avanca de evento em evento; o envio agenda o recebimento no destino apos uma
+ * latencia aleatoria. Os relogios de Lamport seguem as mesmas regras de Process.increamentClockTime.
+ *
+ * Cada processo tem o seu gerador, derivado da semente, e os empates de tempo sao desfeitos pelo
+ * processo de origem e a sua contagem de eventos: a mesma semente produz sempre a mesma execucao,
+ * com qualquer numero de particoes.
+ *
+ * Com particoes > 1 a simulacao e paralela e conservadora: os processos sao divididos entre as
+ * threads e todas avancam juntas em janelas do tamanho da latencia minima. Uma mensagem enviada
+ * dentro da janela chega no minimo ao fim dela, entao nenhuma particao recebe um evento do passado;
+ * as mensagens entre particoes sao trocadas nas barreiras entre janelas.
+ */
+public class Simulador {
+
+	private static final long MICROS = 1000000;
+
+	private final int nprocessos;
+	private long semente = 1;
+	//tempo maximo entre duas acoes de um processo, como o atraso aleatorio de Process.run
+	private long intervaloMaximo = 2 * MICROS;
+	private long latenciaMinima = 1000;
+	private long latenciaMaxima = 10000;
+	private int particoes = 1;
+
+	private long[] relogio;
+	private long[] sequencia;
+	private SplittableRandom[] random;
+	private Particao[] estado;
+
+	public Simulador(int nprocessos) {
+		if (nprocessos < 2)
+			throw new IllegalArgumentException("A simulacao precisa de pelo menos 2 processos: " + nprocessos);
+		this.nprocessos = nprocessos;
+	}
+
+	public void setSemente(long semente) {
+		this.semente = semente;
+	}
+
+	//em microssegundos virtuais
+	public void setIntervaloMaximo(long intervaloMaximo) {
+		if (intervaloMaximo < 1)
+			throw new IllegalArgumentException("Intervalo invalido: " + intervaloMaximo);
+		this.intervaloMaximo = intervaloMaximo;
+	}
+
+	//em microssegundos virtuais; a latencia minima e o tamanho da janela da simulacao paralela
+	public void setLatencia(long minima, long maxima) {
+		if (minima < 1 || maxima < minima)
+			throw new IllegalArgumentException("Latencia invalida: " + minima + " a " + maxima);
+		this.latenciaMinima = minima;
+		this.latenciaMaxima = maxima;
+	}
+
+	//numero de threads da simulacao; 1 executa na thread de quem chama
+	public void setParticoes(int particoes) {
+		if (particoes < 1)
+			throw new IllegalArgumentException("Particoes invalidas: " + particoes);
+		this.particoes = Math.min(particoes, nprocessos);
+	}
+
+	/*
+	 * Simula do instante 0 ate duracao (microssegundos virtuais) e retorna os eventos executados.
+	 * Cada chamada recomeca a simulacao do inicio com a mesma semente.
+	 */
+	public long executar(long duracao) throws InterruptedException {
+		relogio = new long[nprocessos];
+		sequencia = new long[nprocessos];
+		random = new SplittableRandom[nprocessos];
+		SplittableRandom base = new SplittableRandom(semente);
+		estado = new Particao[particoes];
+		for (int i = 0; i < particoes; i++)
+			estado[i] = new Particao(i, nprocessos / particoes + 1);
+		for (int p = 0; p < nprocessos; p++) {
+			random[p] = base.split();
+			estado[p % particoes].fila.inserir(random[p].nextLong(intervaloMaximo), ordem(p), p, -1, 0);
+		}
+
+		if (particoes == 1) {
+			estado[0].processarAte(duracao);
+			return getEventos();
+		}
+
+		Janela janela = new Janela(duracao);
+		Thread[] threads = new Thread[particoes - 1];
+		for (int i = 1; i < particoes; i++) {
+			Particao particao = estado[i];
+			threads[i - 1] = new Thread(() -> particao.executar(janela), "simulador-" + i);
+			threads[i - 1].start();
+		}
+		estado[0].executar(janela);
+		for (Thread thread : threads)
+			thread.join();
+		return getEventos();
+	}
+
+	//chave de desempate unica e independente da particao: processo de origem e a sua contagem de eventos
+	private long ordem(int processo) {
+		return ((long) processo << 40) | sequencia[processo]++;
+	}
+
+	public long getEventos() {
+		return getLocais() + getEnvios() + getRecebimentos();
+	}
+
+	public long getLocais() {
+		long total = 0;
+		for (Particao particao : estado)
+			total += particao.locais;
+		return total;
+	}
+
+	public long getEnvios() {
+		long total = 0;
+		for (Particao particao : estado)
+			total += particao.envios;
+		return total;
+	}
+
+	public long getRecebimentos() {
+		long total = 0;
+		for (Particao particao : estado)
+			total += particao.recebimentos;
+		return total;
+	}
+
+	//relogio de Lamport do processo ao fim da simulacao
+	public long getRelogio(int processo) {
+		return relogio[processo];
+	}
+
+	//resumo dos relogios finais; execucoes com a mesma semente tem a mesma assinatura
+	public int getAssinatura() {
+		return Arrays.hashCode(relogio);
+	}
+
+	//as janelas da simulacao paralela: a barreira com acao calcula a proxima, a outra espera o fim dela
+	private final class Janela {
+
+		private final long duracao;
+		private final CyclicBarrier inicio;
+		private final CyclicBarrier fim;
+		private volatile long limite;
+
+		private Janela(long duracao) {
+			this.duracao = duracao;
+			inicio = new CyclicBarrier(particoes, () -> {
+				long menor = Long.MAX_VALUE;
+				for (Particao particao : estado)
+					menor = Math.min(menor, particao.fila.menorTempo());
+				limite = menor >= duracao ? -1 : Math.min(duracao, menor + latenciaMinima);
+			});
+			fim = new CyclicBarrier(particoes);
+		}
+	}
+
+	//processos p com p % particoes == indice e os eventos destinados a eles
+	private final class Particao {
+
+		private final int indice;
+		private final FilaEventos fila;
+		//mensagens para cada outra particao, entregues na proxima janela
+		private final FilaEventos[] saida;
+		private long locais;
+		private long envios;
+		private long recebimentos;
+
+		private Particao(int indice, int capacidade) {
+			this.indice = indice;
+			fila = new FilaEventos(capacidade * 2);
+			saida = new FilaEventos[particoes];
+			for (int i = 0; i < particoes; i++)
+				if (i != indice)
+					saida[i] = new FilaEventos(capacidade);
+		}
+
+		private void executar(Janela janela) {
+			try {
+				while (true) {
+					for (Particao outra : estado)
+						if (outra != this)
+							outra.saida[indice].transferir(fila);
+					janela.inicio.await();
+					long limite = janela.limite;
+					if (limite < 0)
+						return;
+					processarAte(limite);
+					janela.fim.await();
+				}
+			} catch (InterruptedException | BrokenBarrierException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		//executa, em ordem, os eventos com tempo menor que limite
+		private void processarAte(long limite) {
+			while (fila.menorTempo() < limite) {
+				int evento = fila.remover();
+				long tempo = fila.tempo(evento);
+				int processo = fila.processo(evento);
+				int remetente = fila.remetente(evento);
+				long carimbo = fila.carimbo(evento);
+				fila.liberar(evento);
+
+				if (remetente >= 0) {
+					//recebimento: maximo entre o relogio local e o carimbo, mais 1
+					relogio[processo] = Math.max(relogio[processo], carimbo) + 1;
+					recebimentos++;
+					continue;
+				}
+
+				SplittableRandom aleatorio = random[processo];
+				if (aleatorio.nextBoolean()) {
+					relogio[processo]++;
+					locais++;
+				} else {
+					long enviado = ++relogio[processo];
+					int destino = aleatorio.nextInt(nprocessos - 1); //qualquer processo menos ele mesmo
+					if (destino >= processo)
+						destino++;
+					long chegada = tempo + latenciaMinima + aleatorio.nextLong(latenciaMaxima - latenciaMinima + 1);
+					int particao = destino % particoes;
+					(particao == indice ? fila : saida[particao]).inserir(chegada, ordem(processo), destino, processo, enviado);
+					envios++;
+				}
+				fila.inserir(tempo + 1 + aleatorio.nextLong(intervaloMaximo), ordem(processo), processo, -1, 0);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Simulador [processos=" + nprocessos + ", particoes=" + particoes + ", semente=" + semente + ", eventos=" + getEventos()
+				+ ", locais=" + getLocais() + ", envios=" + getEnvios() + ", recebimentos=" + getRecebimentos()
+				+ ", assinatura=" + Integer.toHexString(getAssinatura()) + "]";
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 2) {
+			System.out.println("Uso: Simulador <processos> <segundos virtuais> [semente] [particoes]");
+			System.exit(0);
+		}
+		Simulador simulador = new Simulador(Integer.parseInt(args[0]));
+		if (args.length > 2)
+			simulador.setSemente(Long.parseLong(args[2]));
+		if (args.length > 3)
+			simulador.setParticoes(Integer.parseInt(args[3]));
+		long inicio = System.nanoTime();
+		long eventos = simulador.executar(Long.parseLong(args[1]) * MICROS);
+		double segundos = (System.nanoTime() - inicio) / 1e9;
+		System.out.println(simulador);
+		System.out.printf("%d eventos em %.3f s: %.0f eventos/s%n", eventos, segundos, eventos / segundos);
+	}
+}
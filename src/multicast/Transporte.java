@@ -0,0 +1,16 @@
+package multicast;
+
+//Como os pacotes chegam as caixas de mensagens dos processos: na mesma JVM ou pela rede
+public interface Transporte {
+
+	//entrega o pacote ao processo packet.getProcessoId(); nao bloqueia esperando o receptor
+	void enviar(Packet packet, int remetente);
+
+	//entrega o mesmo pacote a cada membro menos o remetente, numa unica passada
+	void difundir(Packet packet, int remetente, int[] membros);
+
+	//true se o processo executa nesta JVM
+	boolean local(int processoId);
+
+	void encerrar();
+}
@@ -0,0 +1,29 @@
+package multicast;
+
+//Todos os processos na mesma JVM: o pacote vai direto para a caixa do receptor
+public class TransporteLocal implements Transporte {
+
+	private final Multicast multicast;
+
+	public TransporteLocal(Multicast multicast) {
+		this.multicast = multicast;
+	}
+
+	public void enviar(Packet packet, int remetente) {
+		multicast.getProcessos().get(packet.getProcessoId()).getCaixa().depositar(packet, remetente);
+	}
+
+	public void difundir(Packet packet, int remetente, int[] membros) {
+		java.util.List<Process> processos = multicast.getProcessos();
+		for (int membro : membros)
+			if (membro != remetente)
+				processos.get(membro).getCaixa().depositar(packet, remetente);
+	}
+
+	public boolean local(int processoId) {
+		return true;
+	}
+
+	public void encerrar() {
+	}
+}
@@ -0,0 +1,130 @@
+package multicast;
+
+import java.util.SplittableRandom;
+
+/*
+ * Transporte e relogio do modo SIMULADO: executa os processos reais em tempo virtual. Os eventos
+ * de cada Process e as entregas dos pacotes nas caixas sao agendados numa FilaEventos e executados
+ * em ordem de tempo pela thread de Multicast.simular, sem Thread.sleep, sem threads de caixa e sem
+ * o relogio do modo TAREFA. O relogio virtual, em microssegundos, salta de evento em evento.
+ *
+ * Cada pacote chega apos uma latencia aleatoria, mas nunca antes do pacote anterior do mesmo
+ * remetente: os canais continuam FIFO, como supoe a ordem total. Os empates de tempo sao desfeitos
+ * pelo processo de origem e a sua contagem de eventos, entao a mesma semente do Multicast produz
+ * sempre a mesma execucao.
+ */
+public class TransporteSimulado implements Transporte {
+
+	private final Multicast multicast;
+	private final FilaEventos fila;
+	private final SplittableRandom random;
+	//eventos ja agendados por cada processo de origem, para desfazer empates
+	private final long[] sequencia;
+	//chegada do ultimo pacote de cada remetente, para manter os canais FIFO
+	private final long[] ultimaChegada;
+	private long latenciaMinima = 1000;
+	private long latenciaMaxima = 10000;
+	private long agora;
+	//metricas
+	private long passos;
+	private long entregas;
+
+	public TransporteSimulado(Multicast multicast) {
+		this.multicast = multicast;
+		this.random = multicast.dividirAleatorio();
+		this.sequencia = new long[multicast.nprocessos];
+		this.ultimaChegada = new long[multicast.nprocessos];
+		this.fila = new FilaEventos(multicast.nprocessos * 2);
+	}
+
+	//latencia de cada pacote, em microssegundos virtuais; chamar antes de iniciar
+	public void setLatencia(long minima, long maxima) {
+		if (minima < 0 || maxima < minima)
+			throw new IllegalArgumentException("Latencia invalida: " + minima + "-" + maxima);
+		latenciaMinima = minima;
+		latenciaMaxima = maxima;
+	}
+
+	public void enviar(Packet packet, int remetente) {
+		agendarEntrega(packet.getProcessoId(), packet, remetente);
+	}
+
+	public void difundir(Packet packet, int remetente, int[] membros) {
+		for (int membro : membros)
+			if (membro != remetente)
+				agendarEntrega(membro, packet, remetente);
+	}
+
+	public boolean local(int processoId) {
+		return true;
+	}
+
+	public void encerrar() {
+	}
+
+	private void agendarEntrega(int destino, Packet packet, int remetente) {
+		long chegada = agora + latenciaMinima + random.nextLong(latenciaMaxima - latenciaMinima + 1);
+		if (chegada < ultimaChegada[remetente])
+			chegada = ultimaChegada[remetente];
+		ultimaChegada[remetente] = chegada;
+		fila.inserir(chegada, ordem(remetente), destino, remetente, packet.getTime(), packet);
+	}
+
+	//agenda Process.passoSimulado daqui a atraso microssegundos virtuais
+	void agendarPasso(Process processo, long atraso) {
+		int id = processo.getProcessoId();
+		fila.inserir(agora + atraso, ordem(id), id, -1, 0);
+	}
+
+	private long ordem(int origem) {
+		return ((long) origem << 40) | sequencia[origem]++;
+	}
+
+	/*
+	 * Executa em ordem os eventos anteriores ao instante virtual fim (microssegundos) e retorna
+	 * quantos foram executados. Cada entrega passa pela caixa do processo, como nos outros modos.
+	 */
+	long executar(long fim) {
+		java.util.List<Process> processos = multicast.getProcessos();
+		long executados = 0;
+		while (multicast.isAtivo() && fila.menorTempo() < fim) {
+			int evento = fila.remover();
+			agora = fila.tempo(evento);
+			Process processo = processos.get(fila.processo(evento));
+			int remetente = fila.remetente(evento);
+			Packet packet = fila.pacote(evento);
+			fila.liberar(evento);
+			if (remetente < 0) {
+				passos++;
+				processo.passoSimulado();
+			} else {
+				entregas++;
+				processo.getCaixa().depositar(packet, remetente);
+				processo.getCaixa().entregar(processo);
+			}
+			executados++;
+		}
+		if (agora < fim)
+			agora = fim;
+		return executados;
+	}
+
+	//instante virtual atual, em microssegundos
+	public long getAgora() {
+		return agora;
+	}
+
+	public long getPassos() {
+		return passos;
+	}
+
+	public long getEntregas() {
+		return entregas;
+	}
+
+	@Override
+	public String toString() {
+		return "TransporteSimulado [tempoVirtual=" + agora + "us, passos=" + passos + ", entregas=" + entregas
+				+ ", pendentes=" + fila.tamanho() + ", latencia=" + latenciaMinima + "-" + latenciaMaxima + "us]";
+	}
+}
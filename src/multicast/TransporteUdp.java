@@ -0,0 +1,263 @@
+package multicast;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Transporte por IP multicast na interface de loopback, para dividir os processos entre varias JVMs
+ * do mesmo host. Cada JVM executa os processos primeiro..ultimo; pacotes para eles vao direto para a
+ * caixa, os demais sao escritos no formato binario de Packet e enviados ao grupo. Todas as JVMs recebem
+ * os datagramas do grupo e ficam so com os pacotes dos seus processos. Uma difusao vai num unico
+ * pacote, entregue por cada JVM aos membros locais do grupo; os grupos devem ser definidos igualmente
+ * em todas as JVMs.
+ *
+ * Datagrama: [MAGICO int][pacotes short] e para cada pacote [enviado long][remetente int][Packet].
+ * Varios pacotes vao no mesmo datagrama ate o lote encher ou o intervalo vencer. O envio registra o
+ * tempo de cada pacote no lote; o recebimento, o tempo desde enviar(). System.nanoTime so vale dentro
+ * de uma JVM, entao "enviado" e o relogio de parede em microssegundos (Instant): a medida tem a
+ * resolucao desse relogio e, entre hosts, depende da sincronizacao deles.
+ * UDP pode perder datagramas: a exclusao mutua supoe entrega.
+ */
+public class TransporteUdp implements Transporte {
+
+	public static final String GRUPO = "230.0.0.1";
+	public static final int PORTA = 4446;
+	private static final int MAGICO = 0x4C414D50;
+	private static final int CABECALHO = 4 + 2;
+	private static final int POR_PACOTE = 8 + 4;
+	private static final int MAXIMO_DATAGRAMA = 65507;
+
+	//descarrega os lotes vencidos de todos os transportes
+	private static final ScheduledExecutorService relogio = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "udp-lotes");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final Multicast multicast;
+	private final int primeiro;
+	private final int ultimo;
+	private final DatagramChannel canal;
+	private final InetSocketAddress grupo;
+	private final ByteBuffer lote;
+	private final long intervaloMicros;
+	private long[] noLote = new long[64]; //instante em que cada pacote do lote foi enviado
+	private int pacotesNoLote;
+	private final ScheduledFuture<?> verificacao;
+	private final Thread receptor;
+	private volatile boolean ativo = true;
+
+	private final Histograma latenciaEnvio = new Histograma();
+	private final Histograma latenciaRecebimento = new Histograma();
+	private long datagramasEnviados;
+	private long pacotesEnviados;
+	private long falhasEnvio;
+	private volatile long datagramasRecebidos;
+	private volatile long pacotesRecebidos;
+
+	public TransporteUdp(Multicast multicast, int primeiro, int ultimo) throws IOException {
+		this(multicast, primeiro, ultimo, InetAddress.getByName(GRUPO), PORTA, 8192, 500);
+	}
+
+	/*
+	 * bytesLote: tamanho maximo do datagrama; um lote com menos bytes e enviado quando o pacote mais
+	 * antigo espera intervaloMicros. intervaloMicros 0 envia cada pacote no seu proprio datagrama.
+	 */
+	public TransporteUdp(Multicast multicast, int primeiro, int ultimo, InetAddress grupo, int porta, int bytesLote,
+			long intervaloMicros) throws IOException {
+		if (primeiro < 0 || ultimo >= multicast.nprocessos || ultimo < primeiro)
+			throw new IllegalArgumentException("Processos locais invalidos: " + primeiro + "-" + ultimo);
+		this.multicast = multicast;
+		this.primeiro = primeiro;
+		this.ultimo = ultimo;
+		this.grupo = new InetSocketAddress(grupo, porta);
+		this.intervaloMicros = intervaloMicros;
+		lote = ByteBuffer.allocateDirect(Math.min(Math.max(bytesLote, 512), MAXIMO_DATAGRAMA));
+		NetworkInterface loopback = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+		canal = DatagramChannel.open(StandardProtocolFamily.INET)
+				.setOption(StandardSocketOptions.SO_REUSEADDR, true)
+				.bind(new InetSocketAddress(porta))
+				.setOption(StandardSocketOptions.IP_MULTICAST_IF, loopback)
+				.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true)
+				.setOption(StandardSocketOptions.SO_RCVBUF, 4 << 20);
+		canal.join(grupo, loopback);
+		verificacao = intervaloMicros > 0
+				? relogio.scheduleAtFixedRate(this::descarregar, intervaloMicros, intervaloMicros, TimeUnit.MICROSECONDS)
+				: null;
+		receptor = new Thread(this::receber, "udp-receptor-" + primeiro + "-" + ultimo);
+		receptor.setDaemon(true);
+		receptor.start();
+	}
+
+	public boolean local(int processoId) {
+		return processoId >= primeiro && processoId <= ultimo;
+	}
+
+	public void enviar(Packet packet, int remetente) {
+		if (local(packet.getProcessoId())) {
+			multicast.getProcessos().get(packet.getProcessoId()).getCaixa().depositar(packet, remetente);
+			return;
+		}
+		enfileirar(packet, remetente);
+	}
+
+	public void difundir(Packet packet, int remetente, int[] membros) {
+		boolean remotos = false;
+		java.util.List<Process> processos = multicast.getProcessos();
+		for (int membro : membros) {
+			if (membro == remetente)
+				continue;
+			if (local(membro))
+				processos.get(membro).getCaixa().depositar(packet, remetente);
+			else
+				remotos = true;
+		}
+		if (remotos)
+			enfileirar(packet, remetente);
+	}
+
+	//acrescenta o pacote ao lote do proximo datagrama
+	private void enfileirar(Packet packet, int remetente) {
+		int tamanho = POR_PACOTE + packet.tamanhoCodificado();
+		if (CABECALHO + tamanho > lote.capacity())
+			throw new IllegalArgumentException("Pacote maior que o datagrama: " + tamanho + " bytes");
+		synchronized (this) {
+			if (lote.remaining() < tamanho)
+				descarregar();
+			if (pacotesNoLote == 0) {
+				lote.putInt(MAGICO);
+				lote.putShort((short) 0); //quantidade, preenchida ao descarregar
+			}
+			long agora = System.nanoTime();
+			lote.putLong(microssegundos());
+			lote.putInt(remetente);
+			packet.escrever(lote);
+			if (pacotesNoLote == noLote.length)
+				noLote = java.util.Arrays.copyOf(noLote, noLote.length * 2);
+			noLote[pacotesNoLote++] = agora;
+			if (intervaloMicros == 0)
+				descarregar();
+		}
+	}
+
+	//envia o lote atual, se houver
+	public synchronized void descarregar() {
+		if (pacotesNoLote == 0)
+			return;
+		lote.putShort(4, (short) pacotesNoLote);
+		lote.flip();
+		try {
+			canal.send(lote, grupo);
+			datagramasEnviados++;
+			pacotesEnviados += pacotesNoLote;
+			long agora = System.nanoTime();
+			for (int i = 0; i < pacotesNoLote; i++)
+				latenciaEnvio.registrar(agora - noLote[i]);
+		} catch (IOException e) {
+			falhasEnvio++;
+			if (ativo)
+				System.err.println("Falha ao enviar " + pacotesNoLote + " pacotes ao grupo " + grupo + ": " + e);
+		}
+		lote.clear();
+		pacotesNoLote = 0;
+	}
+
+	private void receber() {
+		ByteBuffer entrada = ByteBuffer.allocateDirect(MAXIMO_DATAGRAMA);
+		while (ativo) {
+			entrada.clear();
+			try {
+				canal.receive(entrada);
+			} catch (ClosedChannelException e) {
+				return;
+			} catch (IOException e) {
+				System.err.println("Falha ao receber do grupo " + grupo + ": " + e);
+				continue;
+			}
+			entrada.flip();
+			if (entrada.remaining() < CABECALHO || entrada.getInt() != MAGICO)
+				continue; //outro trafego no grupo
+			datagramasRecebidos++;
+			int pacotes = entrada.getShort();
+			long agora = microssegundos();
+			for (int i = 0; i < pacotes; i++) {
+				long enviado = entrada.getLong();
+				int remetente = entrada.getInt();
+				Packet packet = Packet.ler(entrada);
+				if (packet.isDifusao()) {
+					if (local(remetente))
+						continue; //enviado por esta JVM, os membros locais ja receberam
+					latenciaRecebimento.registrar((agora - enviado) * 1000);
+					for (int membro : multicast.getMembros(packet.getGrupo())) {
+						if (local(membro)) {
+							pacotesRecebidos++;
+							multicast.getProcessos().get(membro).getCaixa().depositar(packet, remetente);
+						}
+					}
+					continue;
+				}
+				if (!local(packet.getProcessoId()))
+					continue; //de outra JVM para outra JVM, ou enviado por esta
+				latenciaRecebimento.registrar((agora - enviado) * 1000);
+				pacotesRecebidos++;
+				multicast.getProcessos().get(packet.getProcessoId()).getCaixa().depositar(packet, remetente);
+			}
+		}
+	}
+
+	//relogio de parede comparavel entre JVMs, ao contrario de System.nanoTime
+	private static long microssegundos() {
+		Instant agora = Instant.now();
+		return agora.getEpochSecond() * 1000000 + agora.getNano() / 1000;
+	}
+
+	public void encerrar() {
+		descarregar();
+		ativo = false;
+		if (verificacao != null)
+			verificacao.cancel(false);
+		try {
+			canal.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	//tempo de cada pacote no lote ate o datagrama ser enviado
+	public Histograma getLatenciaEnvio() {
+		return latenciaEnvio;
+	}
+
+	//tempo de enviar() na JVM de origem ate a caixa do receptor, com resolucao de microssegundos
+	public Histograma getLatenciaRecebimento() {
+		return latenciaRecebimento;
+	}
+
+	public synchronized long getPacotesEnviados() {
+		return pacotesEnviados;
+	}
+
+	public long getPacotesRecebidos() {
+		return pacotesRecebidos;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "TransporteUdp [processos=" + primeiro + "-" + ultimo + ", grupo=" + grupo + ", datagramasEnviados=" + datagramasEnviados
+				+ ", pacotesEnviados=" + pacotesEnviados + ", falhasEnvio=" + falhasEnvio + ", datagramasRecebidos=" + datagramasRecebidos
+				+ ", pacotesRecebidos=" + pacotesRecebidos + "]\n  latencia de envio " + latenciaEnvio
+				+ "\n  latencia de recebimento " + latenciaRecebimento;
+	}
+}
@@ -0,0 +1,180 @@
+package servidor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Agendador unico das tarefas periodicas, sobre um pool de threads configuravel.
+ * Cada tarefa escolhe taxa fixa ou atraso fixo e pode ter variacao aleatoria (jitter), aplicada
+ * so ao atraso de cada execucao: na taxa fixa a grade de horarios nao se desloca.
+ * Excecoes sao contadas e nao cancelam a tarefa, e na taxa fixa as execucoes perdidas
+ * sao puladas (contadas como atraso) em vez de executadas em rajada.
+ */
+public class Agendador {
+
+	public enum Politica {
+		TAXA_FIXA, ATRASO_FIXO
+	}
+
+	private final ScheduledThreadPoolExecutor executor;
+	private final List<Tarefa> tarefas = new CopyOnWriteArrayList<Tarefa>();
+
+	public Agendador(int threads) {
+		AtomicInteger contador = new AtomicInteger();
+		executor = new ScheduledThreadPoolExecutor(threads, acao -> {
+			Thread thread = new Thread(acao, "agendador-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+	}
+
+	public Tarefa agendar(String nome, Runnable acao, long atrasoInicial, long periodo, TimeUnit unidade,
+			Politica politica) {
+		return agendar(nome, acao, atrasoInicial, periodo, unidade, politica, 0);
+	}
+
+	/**
+	 * @param jitter fracao do periodo somada ou subtraida aleatoriamente do horario de cada execucao (0 a 1)
+	 */
+	public Tarefa agendar(String nome, Runnable acao, long atrasoInicial, long periodo, TimeUnit unidade,
+			Politica politica, double jitter) {
+		if (periodo <= 0)
+			throw new IllegalArgumentException("Periodo invalido: " + periodo);
+		Tarefa tarefa = new Tarefa(nome, acao, unidade.toNanos(periodo), politica, jitter);
+		tarefas.add(tarefa);
+		tarefa.agendar(System.nanoTime() + unidade.toNanos(atrasoInicial), 0);
+		return tarefa;
+	}
+
+	public List<Tarefa> getTarefas() {
+		return tarefas;
+	}
+
+	/**
+	 * Cancela as tarefas e espera as execucoes em andamento terminarem.
+	 * @return false se alguma execucao nao terminou dentro do prazo e precisou ser interrompida
+	 */
+	public boolean encerrar(long prazo, TimeUnit unidade) {
+		for (Tarefa tarefa : tarefas)
+			tarefa.cancelar();
+		executor.shutdown();
+		try {
+			if (executor.awaitTermination(prazo, unidade))
+				return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		executor.shutdownNow();
+		return false;
+	}
+
+	public class Tarefa implements Runnable {
+
+		private final String nome;
+		private final Runnable acao;
+		private final long periodo;
+		private final Politica politica;
+		private final double jitter;
+		private volatile boolean cancelada;
+		private volatile ScheduledFuture<?> futuro;
+		private long base; //instante planejado da execucao atual, sem jitter
+		//metricas, alteradas apenas pela execucao em andamento
+		private volatile long execucoes;
+		private volatile long falhas;
+		private volatile long atrasos;
+		private volatile long duracaoMaximaNanos;
+		private volatile long atrasoMaximoNanos;
+
+		private Tarefa(String nome, Runnable acao, long periodo, Politica politica, double jitter) {
+			this.nome = nome;
+			this.acao = acao;
+			this.periodo = periodo;
+			this.politica = politica;
+			this.jitter = Math.max(0, Math.min(1, jitter));
+		}
+
+		//variacao: jitter somado apenas ao atraso desta execucao, base continua na grade
+		private void agendar(long instante, long variacao) {
+			if (cancelada || executor.isShutdown())
+				return;
+			base = instante;
+			futuro = executor.schedule(this, Math.max(0, instante + variacao - System.nanoTime()), TimeUnit.NANOSECONDS);
+		}
+
+		public void run() {
+			long inicio = System.nanoTime();
+			atrasoMaximoNanos = Math.max(atrasoMaximoNanos, inicio - base);
+			try {
+				acao.run();
+			} catch (Throwable erro) {
+				falhas++;
+				System.err.println("Tarefa " + nome + " falhou: " + erro);
+				erro.printStackTrace();
+			}
+			long fim = System.nanoTime();
+			execucoes++;
+			duracaoMaximaNanos = Math.max(duracaoMaximaNanos, fim - inicio);
+
+			long proximo;
+			if (politica == Politica.TAXA_FIXA) {
+				proximo = base + periodo;
+				if (proximo <= fim) {
+					//execucao passou do periodo: pula as execucoes perdidas em vez de fazer rajada
+					long perdidas = (fim - proximo) / periodo + 1;
+					atrasos += perdidas;
+					proximo += perdidas * periodo;
+				}
+			} else {
+				proximo = fim + periodo;
+			}
+			long variacao = jitter > 0 ? (long) ((ThreadLocalRandom.current().nextDouble() * 2 - 1) * jitter * periodo) : 0;
+			agendar(proximo, variacao);
+		}
+
+		public void cancelar() {
+			cancelada = true;
+			ScheduledFuture<?> atual = futuro;
+			if (atual != null)
+				atual.cancel(false);
+		}
+
+		public String getNome() {
+			return nome;
+		}
+
+		public long getExecucoes() {
+			return execucoes;
+		}
+
+		public long getFalhas() {
+			return falhas;
+		}
+
+		//execucoes puladas porque a anterior passou do periodo (apenas taxa fixa)
+		public long getAtrasos() {
+			return atrasos;
+		}
+
+		public long getDuracaoMaximaNanos() {
+			return duracaoMaximaNanos;
+		}
+
+		//maior diferenca entre o instante planejado (sem jitter) e o inicio real da execucao
+		public long getAtrasoMaximoNanos() {
+			return atrasoMaximoNanos;
+		}
+
+		@Override
+		public String toString() {
+			return "Tarefa [nome=" + nome + ", politica=" + politica + ", execucoes=" + execucoes + ", falhas=" + falhas
+					+ ", atrasos=" + atrasos + ", duracaoMaxima=" + (duracaoMaximaNanos / 1000) + "us, atrasoMaximo="
+					+ (atrasoMaximoNanos / 1000) + "us]";
+		}
+	}
+}
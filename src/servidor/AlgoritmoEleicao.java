@@ -0,0 +1,13 @@
+package servidor;
+
+import java.util.List;
+
+//Algoritmo de eleicao de coordenador executado com troca de mensagens entre os processos
+public interface AlgoritmoEleicao {
+
+	/**
+	 * Executa uma eleicao entre os processos, na ordem do anel, iniciada pelo processo
+	 * da posicao iniciador, e bloqueia ate todos conhecerem o coordenador.
+	 */
+	ResultadoEleicao eleger(List<Processo> processos, int iniciador);
+}
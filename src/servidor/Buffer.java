@@ -5,38 +5,105 @@
  */
 package servidor;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Buffer de uma posicao; usa ReentrantLock em vez de synchronized para nao prender a thread portadora de virtual threads
 public class Buffer
 {
     private int conteudo;
     private boolean disponivel;
+    private final ReentrantLock trava = new ReentrantLock();
+    private final Condition livre = trava.newCondition(); //produtores esperam a posicao ficar livre
+    private final Condition ocupado = trava.newCondition(); //consumidores esperam um valor
+ 
+    public void set(int idProdutor, int valor) {
+        trava.lock();
+        try {
+            esperarLivre(idProdutor);
+            conteudo = valor;
+            Eventos.registrar(RegistroEventos.PRODUZIU, idProdutor, conteudo);
+            disponivel = true;
+            ocupado.signal(); //acorda apenas um consumidor
+        } finally {
+            trava.unlock();
+        }
+    }
+ 
+    public int get(int idConsumidor) {
+        trava.lock();
+        try {
+            esperarOcupado(idConsumidor);
+            Eventos.registrar(RegistroEventos.CONSUMIU, idConsumidor, conteudo);
+            disponivel = false;
+            livre.signal(); //acorda apenas um produtor
+            return conteudo;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    //coloca len valores de src a partir de off, adquirindo a trava uma unica vez
+    public void setAll(int idProdutor, int[] src, int off, int len) {
+        trava.lock();
+        try {
+            for (int i = off; i < off + len; i++) {
+                esperarLivre(idProdutor);
+                conteudo = src[i];
+                disponivel = true;
+                ocupado.signal();
+            }
+            Eventos.registrar(RegistroEventos.PRODUZIU_LOTE, idProdutor, len);
+        } finally {
+            trava.unlock();
+        }
+    }
  
-    public synchronized void set(int idProdutor, int valor) {
+    //espera ao menos um valor e move para dst tudo o que estiver disponivel (no maximo max), retornando a quantidade
+    public int drainTo(int idConsumidor, int[] dst, int max) {
+        if (max <= 0)
+            return 0;
+        trava.lock();
+        try {
+            esperarOcupado(idConsumidor);
+            dst[0] = conteudo;
+            Eventos.registrar(RegistroEventos.CONSUMIU_LOTE, idConsumidor, 1);
+            disponivel = false;
+            livre.signal();
+            return 1;
+        } finally {
+            trava.unlock();
+        }
+    }
+
+    private void esperarLivre(int idProdutor) {
         while (disponivel == true) {
             try {
-                System.out.println("-----Produtor #" + idProdutor + " esperando...");
-                wait();
-            } catch (Exception e) {
-                e.printStackTrace();
+                Eventos.registrar(RegistroEventos.PRODUTOR_ESPERANDO, idProdutor, 0);
+                livre.await();
+            } catch (InterruptedException e) {
+                throw interrompido(e);
             }
         }
-        conteudo = valor;
-        System.out.println("-----Produtor #" + idProdutor + " colocou " + conteudo);
-        disponivel = true;
-        notifyAll();
     }
- 
-    public synchronized int get(int idConsumidor) {
+
+    private void esperarOcupado(int idConsumidor) {
         while (disponivel == false) {
             try {
-                System.out.println("-----Consumidor #" + idConsumidor + " esperado...");
-                wait();
-            } catch (Exception e) {
-                e.printStackTrace();
+                Eventos.registrar(RegistroEventos.CONSUMIDOR_ESPERANDO, idConsumidor, 0);
+                ocupado.await();
+            } catch (InterruptedException e) {
+                throw interrompido(e);
             }
         }
-        System.out.println("-----Consumidor #" + idConsumidor + " consumiu: " + conteudo);
-        disponivel = false;
-        notifyAll();
-        return conteudo;
+    }
+
+    //mantem a thread marcada como interrompida e cancela a operacao, para o Produtor / Consumidor terminar
+    static CancellationException interrompido(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        CancellationException cancelamento = new CancellationException("Operacao no buffer interrompida");
+        cancelamento.initCause(e);
+        return cancelamento;
     }
 }
@@ -0,0 +1,212 @@
+package servidor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Buffer limitado em anel, sem bloqueio (lock-free), com capacidade configuravel.
+ * Mantem o contrato de {@link Buffer#set(int, int)} e {@link Buffer#get(int)}, mas
+ * usa um vetor pre-alocado de int e sequencias por posicao (fila de Vyukov).
+ * Quando o anel esta cheio (ou vazio) a thread gira, cede e por fim estaciona
+ * por um curto periodo, sem acordar as demais threads.
+ */
+public class BufferAnel extends Buffer {
+
+	//quantidade de produtores / consumidores que vao usar o buffer
+	public enum Modo {
+		SPSC(false, false), MPSC(true, false), SPMC(false, true), MPMC(true, true);
+
+		private final boolean multiProdutor;
+		private final boolean multiConsumidor;
+
+		private Modo(boolean multiProdutor, boolean multiConsumidor) {
+			this.multiProdutor = multiProdutor;
+			this.multiConsumidor = multiConsumidor;
+		}
+	}
+
+	private static final long VAZIO = Long.MIN_VALUE;
+
+	private final int[] conteudo;
+	private final AtomicLongArray sequencia;
+	private final int mascara;
+	private final AtomicLong cauda = new AtomicLong(); //proxima posicao a produzir
+	private final AtomicLong cabeca = new AtomicLong(); //proxima posicao a consumir
+	private final boolean multiProdutor;
+	private final boolean multiConsumidor;
+
+	public BufferAnel(int capacidade) {
+		this(capacidade, Modo.MPMC);
+	}
+
+	public BufferAnel(int capacidade, Modo modo) {
+		if (capacidade < 1)
+			throw new IllegalArgumentException("Capacidade invalida: " + capacidade);
+		int tamanho = Integer.highestOneBit(capacidade);
+		if (tamanho < capacidade)
+			tamanho <<= 1; //arredonda para potencia de 2
+		conteudo = new int[tamanho];
+		sequencia = new AtomicLongArray(tamanho);
+		for (int i = 0; i < tamanho; i++)
+			sequencia.set(i, i);
+		mascara = tamanho - 1;
+		multiProdutor = modo.multiProdutor;
+		multiConsumidor = modo.multiConsumidor;
+	}
+
+	public int capacidade() {
+		return conteudo.length;
+	}
+
+	@Override
+	public void set(int idProdutor, int valor) {
+		if (!oferecer(valor)) {
+			Eventos.registrar(RegistroEventos.PRODUTOR_ESPERANDO, idProdutor, 0);
+			Espera espera = new Espera();
+			while (!oferecer(valor))
+				espera.aguardar();
+		}
+		Eventos.registrar(RegistroEventos.PRODUZIU, idProdutor, valor);
+	}
+
+	@Override
+	public int get(int idConsumidor) {
+		long valor = retirar();
+		if (valor == VAZIO) {
+			Eventos.registrar(RegistroEventos.CONSUMIDOR_ESPERANDO, idConsumidor, 0);
+			Espera espera = new Espera();
+			while ((valor = retirar()) == VAZIO)
+				espera.aguardar();
+		}
+		Eventos.registrar(RegistroEventos.CONSUMIU, idConsumidor, (int) valor);
+		return (int) valor;
+	}
+
+	@Override
+	public void setAll(int idProdutor, int[] src, int off, int len) {
+		int colocados = oferecerLote(src, off, len);
+		if (colocados < len) {
+			Eventos.registrar(RegistroEventos.PRODUTOR_ESPERANDO, idProdutor, 0);
+			Espera espera = new Espera();
+			while (colocados < len) {
+				int n = oferecerLote(src, off + colocados, len - colocados);
+				if (n == 0)
+					espera.aguardar();
+				colocados += n;
+			}
+		}
+		Eventos.registrar(RegistroEventos.PRODUZIU_LOTE, idProdutor, len);
+	}
+
+	@Override
+	public int drainTo(int idConsumidor, int[] dst, int max) {
+		if (max <= 0)
+			return 0;
+		int n = retirarLote(dst, max);
+		if (n == 0) {
+			Eventos.registrar(RegistroEventos.CONSUMIDOR_ESPERANDO, idConsumidor, 0);
+			Espera espera = new Espera();
+			while ((n = retirarLote(dst, max)) == 0)
+				espera.aguardar();
+		}
+		Eventos.registrar(RegistroEventos.CONSUMIU_LOTE, idConsumidor, n);
+		return n;
+	}
+
+	public boolean oferecer(int valor) {
+		while (true) {
+			long posicao = cauda.get();
+			int indice = (int) posicao & mascara;
+			long diferenca = sequencia.get(indice) - posicao;
+			if (diferenca == 0) {
+				if (multiProdutor) {
+					if (!cauda.compareAndSet(posicao, posicao + 1))
+						continue;
+				} else {
+					cauda.lazySet(posicao + 1);
+				}
+				conteudo[indice] = valor;
+				sequencia.lazySet(indice, posicao + 1); //publica a posicao para os consumidores
+				return true;
+			}
+			if (diferenca < 0)
+				return false; //anel cheio
+		}
+	}
+
+	//retorna o valor consumido ou VAZIO, evitando alocar um Integer por operacao
+	private long retirar() {
+		while (true) {
+			long posicao = cabeca.get();
+			int indice = (int) posicao & mascara;
+			long diferenca = sequencia.get(indice) - (posicao + 1);
+			if (diferenca == 0) {
+				if (multiConsumidor) {
+					if (!cabeca.compareAndSet(posicao, posicao + 1))
+						continue;
+				} else {
+					cabeca.lazySet(posicao + 1);
+				}
+				int valor = conteudo[indice];
+				sequencia.lazySet(indice, posicao + mascara + 1); //libera a posicao para a proxima volta
+				return valor;
+			}
+			if (diferenca < 0)
+				return VAZIO; //anel vazio
+		}
+	}
+
+	//reserva com um unico CAS todas as posicoes livres consecutivas (ate len) e retorna quantas foram preenchidas
+	public int oferecerLote(int[] src, int off, int len) {
+		while (true) {
+			long posicao = cauda.get();
+			int livres = 0;
+			while (livres < len && sequencia.get((int) (posicao + livres) & mascara) == posicao + livres)
+				livres++;
+			if (livres == 0) {
+				if (sequencia.get((int) posicao & mascara) - posicao < 0)
+					return 0; //anel cheio
+				continue; //outro produtor avancou a cauda
+			}
+			if (multiProdutor) {
+				if (!cauda.compareAndSet(posicao, posicao + livres))
+					continue;
+			} else {
+				cauda.lazySet(posicao + livres);
+			}
+			for (int i = 0; i < livres; i++) {
+				int indice = (int) (posicao + i) & mascara;
+				conteudo[indice] = src[off + i];
+				sequencia.lazySet(indice, posicao + i + 1);
+			}
+			return livres;
+		}
+	}
+
+	//reserva com um unico CAS todas as posicoes publicadas consecutivas (ate max) e retorna quantas foram lidas
+	private int retirarLote(int[] dst, int max) {
+		while (true) {
+			long posicao = cabeca.get();
+			int prontos = 0;
+			while (prontos < max && sequencia.get((int) (posicao + prontos) & mascara) == posicao + prontos + 1)
+				prontos++;
+			if (prontos == 0) {
+				if (sequencia.get((int) posicao & mascara) - (posicao + 1) < 0)
+					return 0; //anel vazio
+				continue; //outro consumidor avancou a cabeca
+			}
+			if (multiConsumidor) {
+				if (!cabeca.compareAndSet(posicao, posicao + prontos))
+					continue;
+			} else {
+				cabeca.lazySet(posicao + prontos);
+			}
+			for (int i = 0; i < prontos; i++) {
+				int indice = (int) (posicao + i) & mascara;
+				dst[i] = conteudo[indice];
+				sequencia.lazySet(indice, posicao + i + mascara + 1);
+			}
+			return prontos;
+		}
+	}
+}
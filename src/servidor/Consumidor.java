@@ -5,22 +5,42 @@
  */
 package servidor;
 
-public class Consumidor extends Thread
+import java.util.concurrent.CancellationException;
+
+public class Consumidor implements Runnable
 {
     private int idConsumidor;
     private Buffer pilha;
     private int totalConsumir;
+    private int tamanhoLote;
  
     public Consumidor(int id, Buffer p, int totalConsumir) {
+        this(id, p, totalConsumir, 1);
+    }
+ 
+    //tamanhoLote > 1 faz o consumidor usar Buffer.drainTo
+    public Consumidor(int id, Buffer p, int totalConsumir, int tamanhoLote) {
         idConsumidor = id;
         pilha = p;
         this.totalConsumir = totalConsumir;
+        this.tamanhoLote = Math.max(1, tamanhoLote);
     }
  
     public void run() {
-        for (int i = 0; i < totalConsumir; i++) {
-            pilha.get(idConsumidor);
+        try {
+            if (tamanhoLote == 1) {
+                for (int i = 0; i < totalConsumir; i++) {
+                    pilha.get(idConsumidor);
+                }
+            } else {
+                int[] lote = new int[tamanhoLote];
+                for (int i = 0; i < totalConsumir; ) {
+                    i += pilha.drainTo(idConsumidor, lote, Math.min(tamanhoLote, totalConsumir - i));
+                }
+            }
+        } catch (CancellationException e) {
+            return; //interrompido pelo encerramento do Gerenciador
         }
-        System.out.println("-----Consumidor #" + idConsumidor + " concluido!");
+        Eventos.registrar(RegistroEventos.CONSUMIDOR_CONCLUIDO, idConsumidor, 0);
     }
 }
@@ -0,0 +1,153 @@
+package servidor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detector de falhas por heartbeat. Combina o detector phi accrual (suspeita quando o
+ * atraso do heartbeat e improvavel dado o historico de intervalos) com um limite fixo
+ * de tempo, que garante a deteccao dentro de um prazo configuravel.
+ * Quando passa a suspeitar, chama a acao informada uma unica vez ate o proximo heartbeat
+ * ou ate ser rearmado.
+ */
+public class DetectorFalhas {
+
+	private final double limiarPhi;
+	private final long limiteNanos;
+	private final long desvioMinimo; //microssegundos
+	private final Runnable aoSuspeitar;
+	//janela circular dos ultimos intervalos entre heartbeats, em microssegundos
+	private final long[] intervalos;
+	private int quantidade;
+	private int proximo;
+	private long soma;
+	private long somaQuadrados;
+
+	private long ultimoHeartbeat = -1;
+	private boolean suspeito;
+	private long heartbeats;
+	private long suspeitas;
+	private long ultimaDeteccaoNanos;
+	private long maiorDeteccaoNanos;
+
+	/**
+	 * @param limiarPhi nivel de suspeita a partir do qual o processo e considerado falho (ex.: 8)
+	 * @param limite tempo maximo sem heartbeat ate a suspeita, mesmo com phi baixo
+	 * @param janela quantidade de intervalos usados para estimar media e desvio
+	 */
+	public DetectorFalhas(double limiarPhi, long limite, TimeUnit unidade, int janela, Runnable aoSuspeitar) {
+		this.limiarPhi = limiarPhi;
+		this.limiteNanos = unidade.toNanos(limite);
+		this.desvioMinimo = Math.max(1, limiteNanos / 20000);
+		this.intervalos = new long[Math.max(1, janela)];
+		this.aoSuspeitar = aoSuspeitar;
+	}
+
+	//detector apenas por tempo limite, sem phi accrual
+	public static DetectorFalhas porTempoLimite(long limite, TimeUnit unidade, Runnable aoSuspeitar) {
+		return new DetectorFalhas(Double.POSITIVE_INFINITY, limite, unidade, 1, aoSuspeitar);
+	}
+
+	//chamado a cada heartbeat recebido do processo monitorado
+	public synchronized void heartbeat() {
+		long agora = System.nanoTime();
+		if (ultimoHeartbeat >= 0 && !suspeito)
+			registrarIntervalo((agora - ultimoHeartbeat) / 1000);
+		ultimoHeartbeat = agora;
+		suspeito = false;
+		heartbeats++;
+	}
+
+	//volta a monitorar sem heartbeat novo: a suspeita se repete se nada chegar dentro do limite.
+	//usado quando a acao nao resolveu a falha (ex.: eleicao sem coordenador)
+	public synchronized void rearmar() {
+		if (!suspeito)
+			return;
+		suspeito = false;
+		ultimoHeartbeat = System.nanoTime();
+	}
+
+	//avalia a suspeita; deve ser chamado periodicamente em intervalo menor que o limite
+	public boolean verificar() {
+		synchronized (this) {
+			if (suspeito || ultimoHeartbeat < 0)
+				return suspeito;
+			long agora = System.nanoTime();
+			long atraso = agora - ultimoHeartbeat;
+			if (atraso < limiteNanos && phi(atraso) < limiarPhi)
+				return false;
+			suspeito = true;
+			suspeitas++;
+			ultimaDeteccaoNanos = atraso;
+			maiorDeteccaoNanos = Math.max(maiorDeteccaoNanos, atraso);
+			//historico antigo nao vale para o proximo processo monitorado
+			quantidade = 0;
+			proximo = 0;
+			soma = 0;
+			somaQuadrados = 0;
+		}
+		aoSuspeitar.run(); //fora do monitor, a acao pode demorar (ex.: eleicao)
+		return true;
+	}
+
+	//nivel de suspeita atual (0 = sem suspeita)
+	public synchronized double getPhi() {
+		return ultimoHeartbeat < 0 ? 0 : phi(System.nanoTime() - ultimoHeartbeat);
+	}
+
+	public synchronized boolean isSuspeito() {
+		return suspeito;
+	}
+
+	public synchronized long getHeartbeats() {
+		return heartbeats;
+	}
+
+	public synchronized long getSuspeitas() {
+		return suspeitas;
+	}
+
+	//tempo entre o ultimo heartbeat e a deteccao da ultima falha
+	public synchronized long getUltimaDeteccaoNanos() {
+		return ultimaDeteccaoNanos;
+	}
+
+	public synchronized long getMaiorDeteccaoNanos() {
+		return maiorDeteccaoNanos;
+	}
+
+	private void registrarIntervalo(long intervalo) {
+		if (quantidade == intervalos.length) {
+			long antigo = intervalos[proximo];
+			soma -= antigo;
+			somaQuadrados -= antigo * antigo;
+		} else {
+			quantidade++;
+		}
+		intervalos[proximo] = intervalo;
+		proximo = (proximo + 1) % intervalos.length;
+		soma += intervalo;
+		somaQuadrados += intervalo * intervalo;
+	}
+
+	//phi = -log10(1 - F(atraso)), com F normal aproximada pela logistica (como no Akka)
+	private double phi(long atraso) {
+		if (quantidade == 0)
+			return 0;
+		double atrasoMicros = atraso / 1000.0;
+		double media = (double) soma / quantidade;
+		double variancia = (double) somaQuadrados / quantidade - media * media;
+		double desvio = Math.max(Math.sqrt(Math.max(0, variancia)), desvioMinimo);
+		double y = (atrasoMicros - media) / desvio;
+		double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+		if (atrasoMicros > media)
+			return -Math.log10(e / (1.0 + e));
+		return -Math.log10(1.0 - 1.0 / (1.0 + e));
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "DetectorFalhas [phi=" + String.format("%.2f", getPhi()) + ", suspeito=" + suspeito + ", heartbeats="
+				+ heartbeats + ", suspeitas=" + suspeitas + ", ultimaDeteccao=" + (ultimaDeteccaoNanos / 1000000)
+				+ "ms, maiorDeteccao=" + (maiorDeteccaoNanos / 1000000) + "ms]";
+	}
+}
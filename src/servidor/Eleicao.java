@@ -4,10 +4,10 @@ import java.io.Serializable;
 
 public class Eleicao implements Serializable {
 
-	private static int TENTATIVAS = 0;
-	private static int MAX_TENTATIVAS = 5;
 	private static final long serialVersionUID = -8827196002196053276L;
 	private Processo coordenador;
+	private transient AlgoritmoEleicao algoritmo;
+	private transient volatile ResultadoEleicao ultimoResultado;
 
 	public Eleicao() {
 		super();
@@ -21,6 +21,22 @@ public class Eleicao implements Serializable {
 		this.coordenador = coordenador;
 	}
 
+	public AlgoritmoEleicao getAlgoritmo() {
+		if (algoritmo == null)
+			algoritmo = new EleicaoAnel();
+		return algoritmo;
+	}
+
+	//EleicaoAnel (Chang-Roberts) por padrao, EleicaoBully como alternativa
+	public void setAlgoritmo(AlgoritmoEleicao algoritmo) {
+		this.algoritmo = algoritmo;
+	}
+
+	//mensagens trocadas e latencia da ultima eleicao, null se ainda nao houve eleicao
+	public ResultadoEleicao getUltimoResultado() {
+		return ultimoResultado;
+	}
+
 	public void remover() {
 		coordenador = null;
 	}
@@ -35,22 +51,11 @@ public class Eleicao implements Serializable {
 	}
 
 	public void eleger(ListaProcessos processos) {
-		processos.eleicao();
-		coordenador = processos.last();
-		System.err.println("Novo Coordenador: " + coordenador);
+		ResultadoEleicao resultado = getAlgoritmo().eleger(processos.findAll(), 0);
+		ultimoResultado = resultado;
+		coordenador = resultado.getCoordenador();
+		System.err.println("Novo Coordenador: " + coordenador + " (" + resultado.getAlgoritmo() + ", "
+				+ resultado.getMensagens() + " mensagens, " + (resultado.getLatenciaNanos() / 1000) + " us)");
 		processos.coordenador(coordenador);
 	}
-
-	public boolean eleger() {
-		if (coordenador == null) {
-			TENTATIVAS++;
-			if (TENTATIVAS > MAX_TENTATIVAS) {
-				TENTATIVAS = 0;
-				return true;
-			} else {
-				return false;
-			}
-		}
-		return false;
-	}
 }
@@ -0,0 +1,59 @@
+package servidor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Algoritmo de Chang-Roberts (LCR) no anel formado pela ordem da lista de processos:
+ * o maior pid visto circula como ELEICAO, candidatos menores sao descartados e, quando
+ * o pid volta ao seu dono, ele circula COORDENADOR. Usa O(n log n) mensagens em media.
+ */
+public class EleicaoAnel extends EleicaoPorMensagens {
+
+	public EleicaoAnel() {
+		super();
+	}
+
+	public EleicaoAnel(Executor executor, long limiteNanos) {
+		super(executor, limiteNanos);
+	}
+
+	@Override
+	public String getNome() {
+		return "chang-roberts";
+	}
+
+	@Override
+	protected void receber(Execucao execucao, int no, MensagemEleicao mensagem) {
+		int proximo = (no + 1) % execucao.tamanho();
+		int pid = execucao.pid(no);
+		int valor = mensagem.getValor();
+		switch (mensagem.getTipo()) {
+		case MensagemEleicao.INICIAR:
+			execucao.setParticipante(no, true);
+			execucao.enviar(no, proximo, MensagemEleicao.ELEICAO, pid);
+			break;
+		case MensagemEleicao.ELEICAO:
+			if (valor > pid) {
+				execucao.setParticipante(no, true);
+				execucao.enviar(no, proximo, MensagemEleicao.ELEICAO, valor);
+			} else if (valor < pid) {
+				if (!execucao.isParticipante(no)) {
+					execucao.setParticipante(no, true);
+					execucao.enviar(no, proximo, MensagemEleicao.ELEICAO, pid);
+				}
+			} else {
+				//o proprio pid deu a volta no anel: e o maior
+				execucao.conhecer(no, pid);
+				execucao.enviar(no, proximo, MensagemEleicao.COORDENADOR, pid);
+			}
+			break;
+		case MensagemEleicao.COORDENADOR:
+			if (valor != pid) {
+				execucao.conhecer(no, valor);
+				if (execucao.pid(proximo) != valor) //o eleito ja sabe, nao precisa completar a volta
+					execucao.enviar(no, proximo, MensagemEleicao.COORDENADOR, valor);
+			}
+			break;
+		}
+	}
+}
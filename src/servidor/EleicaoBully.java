@@ -0,0 +1,61 @@
+package servidor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Algoritmo do valentao (Bully): o processo envia ELEICAO a todos com pid maior; quem
+ * recebe responde OK e inicia sua propria eleicao. O processo que nao tem ninguem acima
+ * anuncia COORDENADOR a todos. Usa O(n^2) mensagens no pior caso.
+ */
+public class EleicaoBully extends EleicaoPorMensagens {
+
+	public EleicaoBully() {
+		super();
+	}
+
+	public EleicaoBully(Executor executor, long limiteNanos) {
+		super(executor, limiteNanos);
+	}
+
+	@Override
+	public String getNome() {
+		return "bully";
+	}
+
+	@Override
+	@SuppressWarnings("fallthrough")
+	protected void receber(Execucao execucao, int no, MensagemEleicao mensagem) {
+		switch (mensagem.getTipo()) {
+		case MensagemEleicao.ELEICAO:
+			execucao.enviar(no, mensagem.getOrigem(), MensagemEleicao.OK, execucao.pid(no));
+			//sem break: quem recebe ELEICAO de um menor tambem inicia a sua, como no INICIAR
+		case MensagemEleicao.INICIAR:
+			if (!execucao.isParticipante(no)) {
+				execucao.setParticipante(no, true);
+				desafiar(execucao, no);
+			}
+			break;
+		case MensagemEleicao.OK:
+			break; //alguem maior assumiu a eleicao, resta esperar o anuncio
+		case MensagemEleicao.COORDENADOR:
+			execucao.conhecer(no, mensagem.getValor());
+			break;
+		}
+	}
+
+	private void desafiar(Execucao execucao, int no) {
+		boolean existeMaior = false;
+		for (int i = 0; i < execucao.tamanho(); i++) {
+			if (execucao.pid(i) > execucao.pid(no)) {
+				existeMaior = true;
+				execucao.enviar(no, i, MensagemEleicao.ELEICAO, execucao.pid(no));
+			}
+		}
+		if (!existeMaior) {
+			for (int i = 0; i < execucao.tamanho(); i++)
+				if (i != no)
+					execucao.enviar(no, i, MensagemEleicao.COORDENADOR, execucao.pid(no));
+			execucao.conhecer(no, execucao.pid(no));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package servidor;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base dos algoritmos de eleicao: monta o transporte entre os processos, dispara o
+ * iniciador e espera ate que todos conhecam o coordenador, medindo mensagens e latencia.
+ */
+public abstract class EleicaoPorMensagens implements AlgoritmoEleicao {
+
+	private static final long LIMITE_PADRAO = TimeUnit.SECONDS.toNanos(10);
+
+	private final Executor executor;
+	private final long limiteNanos;
+
+	protected EleicaoPorMensagens() {
+		this(ForkJoinPool.commonPool(), LIMITE_PADRAO);
+	}
+
+	protected EleicaoPorMensagens(Executor executor, long limiteNanos) {
+		this.executor = executor;
+		this.limiteNanos = limiteNanos;
+	}
+
+	public abstract String getNome();
+
+	//trata uma mensagem recebida pelo participante da posicao no
+	protected abstract void receber(Execucao execucao, int no, MensagemEleicao mensagem);
+
+	public ResultadoEleicao eleger(List<Processo> processos, int iniciador) {
+		int n = processos.size();
+		if (n == 0)
+			return new ResultadoEleicao(getNome(), null, 0, 0, 0);
+		int[] pids = new int[n];
+		for (int i = 0; i < n; i++) {
+			Integer pid = processos.get(i).getPidId();
+			pids[i] = pid == null ? -1 : pid;
+		}
+
+		long inicio = System.nanoTime();
+		Execucao execucao = new Execucao(pids);
+		execucao.transporte = new TransporteEleicao(executor, pids, (no, mensagem) -> receber(execucao, no, mensagem));
+		execucao.transporte.entregar(iniciador, new MensagemEleicao(MensagemEleicao.INICIAR, iniciador, pids[iniciador]));
+		try {
+			if (!execucao.concluida.await(limiteNanos, TimeUnit.NANOSECONDS))
+				throw new IllegalStateException(getNome() + ": eleicao nao convergiu em " + (limiteNanos / 1000000) + " ms");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(getNome() + ": eleicao interrompida", e);
+		}
+		long latencia = System.nanoTime() - inicio;
+
+		Processo coordenador = null;
+		for (int i = 0; i < n && coordenador == null; i++)
+			if (pids[i] == execucao.eleito)
+				coordenador = processos.get(i);
+		return new ResultadoEleicao(getNome(), coordenador, n, execucao.transporte.getMensagens(), latencia);
+	}
+
+	//estado de uma eleicao; cada posicao dos vetores so e alterada pelo proprio participante
+	protected static final class Execucao {
+
+		private final int[] pids;
+		private final boolean[] participante;
+		//quem ja contou na conclusao; anuncios repetidos nao podem liberar eleger antes de todos saberem
+		private final boolean[] conhece;
+		private final CountDownLatch concluida;
+		private TransporteEleicao transporte;
+		private volatile int eleito;
+
+		private Execucao(int[] pids) {
+			this.pids = pids;
+			participante = new boolean[pids.length];
+			conhece = new boolean[pids.length];
+			concluida = new CountDownLatch(pids.length);
+		}
+
+		protected int tamanho() {
+			return pids.length;
+		}
+
+		protected int pid(int no) {
+			return pids[no];
+		}
+
+		protected boolean isParticipante(int no) {
+			return participante[no];
+		}
+
+		protected void setParticipante(int no, boolean valor) {
+			participante[no] = valor;
+		}
+
+		protected void enviar(int origem, int destino, int tipo, int valor) {
+			transporte.enviar(destino, new MensagemEleicao(tipo, origem, valor));
+		}
+
+		//o participante no passa a conhecer o coordenador eleito; continua marcado como participante
+		//para que mensagens atrasadas desta eleicao nao iniciem outra
+		protected void conhecer(int no, int pidEleito) {
+			eleito = pidEleito;
+			if (!conhece[no]) {
+				conhece[no] = true;
+				concluida.countDown();
+			}
+		}
+	}
+}
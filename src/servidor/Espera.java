@@ -0,0 +1,35 @@
+package servidor;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Estrategia de espera progressiva: gira, depois cede o processador e por fim
+ * estaciona a thread por periodos crescentes, sem depender de notificacao.
+ * Se a thread for interrompida a espera e cancelada com CancellationException.
+ */
+class Espera {
+
+	private static final int GIROS = 100;
+	private static final int CESSOES = 10;
+	private static final long ESTACIONAR_MIN = 1000L; //1 microssegundo
+	private static final long ESTACIONAR_MAX = 1000000L; //1 milissegundo
+
+	private int tentativas;
+	private long estacionar = ESTACIONAR_MIN;
+
+	void aguardar() {
+		if (Thread.currentThread().isInterrupted())
+			throw Buffer.interrompido(new InterruptedException());
+		if (tentativas < GIROS) {
+			tentativas++;
+			Thread.onSpinWait();
+		} else if (tentativas < GIROS + CESSOES) {
+			tentativas++;
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(this, estacionar);
+			if (estacionar < ESTACIONAR_MAX)
+				estacionar <<= 1;
+		}
+	}
+}
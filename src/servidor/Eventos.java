@@ -0,0 +1,34 @@
+package servidor;
+
+//Ponto unico de acesso ao registro de eventos usado pelo buffer, produtores, consumidores e eleicao
+public class Eventos {
+
+	private static volatile RegistroEventos registro = new RegistroAssincrono(8192);
+
+	private Eventos() {
+	}
+
+	public static RegistroEventos registro() {
+		return registro;
+	}
+
+	//RegistroEventos.DESLIGADO desativa o registro, RegistroAssincrono tira a escrita do caminho critico
+	public static void usar(RegistroEventos novo) {
+		registro = novo;
+	}
+
+	//escreve os eventos pendentes antes de encerrar a aplicacao
+	public static void encerrar() {
+		RegistroEventos atual = registro;
+		if (atual instanceof RegistroAssincrono)
+			((RegistroAssincrono) atual).encerrar();
+	}
+
+	public static void registrar(int tipo, int id, int valor, int extra) {
+		registro.registrar(tipo, id, valor, extra);
+	}
+
+	public static void registrar(int tipo, int id, int valor) {
+		registro.registrar(tipo, id, valor, 0);
+	}
+}
@@ -1,8 +1,14 @@
 package servidor;
 
 import java.io.Serializable;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import servidor.Agendador.Politica;
 
 public class Gerenciador implements Serializable {
 
@@ -12,21 +18,60 @@ public class Gerenciador implements Serializable {
 	private static final long serialVersionUID = 7757529236684909222L;
 	private Eleicao eleicao;
 	private ListaProcessos listaProcessos;
-	private Timer timerEliminarProcesso;
-	private Timer timerConsultarCoordenador;
-	private Timer timerConsultarNovoProcesso;
-	private Timer timerDesativarCoordenador;
+	private Agendador agendador;
+	//execucoes dos produtores / consumidores ainda nao terminados, inclusive os ja eliminados da lista
+	private final Queue<Future<?>> trabalhadores = new ConcurrentLinkedQueue<Future<?>>();
+	private ModoExecucao modoExecucao = ModoExecucao.THREAD;
+	private ExecutorService executorTrabalhadores;
+	private DetectorFalhas detector;
+	private long intervaloHeartbeat = 10; //ms
         private Buffer bufferCompartilhado;
+	private int tamanhoLote = 1;
 
 	public Gerenciador() {
+		this(new Buffer());
+	}
+
+	//permite usar um buffer com capacidade maior, por exemplo BufferAnel
+	public Gerenciador(Buffer bufferCompartilhado) {
+		this(bufferCompartilhado, 2);
+	}
+
+	//threadsAgendador: tamanho do pool compartilhado pelas tarefas periodicas
+	public Gerenciador(Buffer bufferCompartilhado, int threadsAgendador) {
 		super();
 		eleicao = new Eleicao();
-		listaProcessos = new ListaProcessos();
-		timerConsultarCoordenador = new Timer();
-		timerConsultarNovoProcesso = new Timer();
-		timerEliminarProcesso = new Timer();
-		timerDesativarCoordenador = new Timer();
-		bufferCompartilhado = new Buffer();
+		listaProcessos = new ListaProcessos(true); //consultas periodicas nao bloqueiam NovoProcesso / EliminarProcesso
+		agendador = new Agendador(threadsAgendador);
+		//suspeita do coordenador em no maximo 50 ms sem heartbeat e dispara a eleicao
+		detector = new DetectorFalhas(8.0, 50, TimeUnit.MILLISECONDS, 100, this::coordenadorSuspeito);
+		this.bufferCompartilhado = bufferCompartilhado;
+	}
+
+	//quantidade de valores que cada Produtor / Consumidor move por operacao no buffer
+	public void setTamanhoLote(int tamanhoLote) {
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	//THREAD cria uma thread por processo; POOL e VIRTUAL executam os produtores / consumidores como tarefas
+	public void setModoExecucao(ModoExecucao modoExecucao) {
+		this.modoExecucao = modoExecucao;
+	}
+
+	//substitui o detector de falhas do coordenador; deve ser chamado antes de inicializar
+	public void setDetector(DetectorFalhas detector, long intervaloHeartbeat) {
+		this.detector = detector;
+		this.intervaloHeartbeat = intervaloHeartbeat;
+	}
+
+	//nivel de suspeita e latencia de deteccao do coordenador
+	public DetectorFalhas getDetector() {
+		return detector;
+	}
+
+	//execucoes, falhas e atrasos de cada tarefa periodica
+	public Agendador getAgendador() {
+		return agendador;
 	}
 
 	public void criar() {
@@ -37,43 +82,69 @@ public class Gerenciador implements Serializable {
 		System.out.println("Processo coordenador eleito: "+coordenador);
 	}
 
-	public void inicializar() {                
-		TimerTask timerTaskConsultarCoordenador = new ConsultarCoordenador();		
-		timerConsultarCoordenador.scheduleAtFixedRate(timerTaskConsultarCoordenador, 0, 2000);
-		//fixed rate � relativo ao tempo da primeira tarefa, ou seja, vai executar 2 segundos 
-		//independente das tarefas subsequentes
+	public void inicializar() {
+		executorTrabalhadores = modoExecucao.criarExecutor();
+
+		agendador.agendar("ConsultarCoordenador", new ConsultarCoordenador(), 0, 2000, TimeUnit.MILLISECONDS, Politica.ATRASO_FIXO);
+		//atraso fixo: 2 segundos entre o fim de uma consulta e o inicio da proxima
 		
-		TimerTask timerTaskNovoProcesso = new NovoProcesso();
-		timerConsultarNovoProcesso.scheduleAtFixedRate(timerTaskNovoProcesso, 0, 3000);
+		agendador.agendar("NovoProcesso", new NovoProcesso(), 0, 3000, TimeUnit.MILLISECONDS, Politica.TAXA_FIXA);
 		
-		TimerTask timerTaskEliminarProcesso = new EliminarProcesso();		
-		timerEliminarProcesso.scheduleAtFixedRate(timerTaskEliminarProcesso, 0, 5000);
+		agendador.agendar("EliminarProcesso", new EliminarProcesso(), 0, 5000, TimeUnit.MILLISECONDS, Politica.TAXA_FIXA);
 		
-		TimerTask timerTaskDesativarCoordenador = new DesativarCoordenador();
-		timerDesativarCoordenador.schedule(timerTaskDesativarCoordenador, 10000, 10000);
+		agendador.agendar("DesativarCoordenador", new DesativarCoordenador(), 10000, 10000, TimeUnit.MILLISECONDS, Politica.ATRASO_FIXO);
 		//em 10 segundos inicia a tarefa para desativar coordenador
+
+		agendador.agendar("Heartbeat", new Heartbeat(), 0, intervaloHeartbeat, TimeUnit.MILLISECONDS, Politica.TAXA_FIXA);
+		agendador.agendar("VerificarCoordenador", new VerificarCoordenador(), intervaloHeartbeat,
+				Math.max(1, intervaloHeartbeat / 2), TimeUnit.MILLISECONDS, Politica.TAXA_FIXA);
+		//o coordenador envia heartbeats e o detector e consultado com o dobro da frequencia
 	}
 
-	public void encerrar() {
+	private void coordenadorSuspeito() {
+		System.err.println("Coordenador suspeito apos " + (detector.getUltimaDeteccaoNanos() / 1000000)
+				+ " ms sem heartbeat, iniciando eleicao...");
 		try {
-			Thread.sleep(20000);
-			timerDesativarCoordenador.cancel();
-			timerConsultarCoordenador.cancel();
-			timerConsultarNovoProcesso.cancel();
-			timerEliminarProcesso.cancel();
-                        
-            for (int i = 0; i < listaProcessos.size(); i++)
-            {
-                listaProcessos.get(i).getT().stop();
-            }
-		} catch (Exception exception) {
-			exception.printStackTrace();
+			eleicao.eleger(listaProcessos);
+		} finally {
+			//sem coordenador nao ha heartbeat para limpar a suspeita; rearma para tentar de novo
+			if (eleicao.getCoordenador() == null)
+				detector.rearmar();
+		}
+	}
+
+	//cancela as tarefas periodicas e interrompe os produtores / consumidores ainda ativos
+	public void encerrar() {
+		agendador.encerrar(5, TimeUnit.SECONDS);
+		for (Agendador.Tarefa tarefa : agendador.getTarefas())
+			System.out.println(tarefa);
+		System.out.println(detector);
+
+		for (Future<?> trabalhador : trabalhadores)
+			trabalhador.cancel(true); //interrompe quem estiver esperando no buffer
+		if (executorTrabalhadores != null) {
+			executorTrabalhadores.shutdown();
+			try {
+				executorTrabalhadores.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
 		}
 	}
 
-	private class ConsultarCoordenador extends TimerTask {
+	//inicia o produtor / consumidor conforme o modo de execucao
+	private Future<?> executar(Processo processo, Runnable trabalho) {
+		if (executorTrabalhadores != null)
+			return executorTrabalhadores.submit(trabalho);
+		FutureTask<?> tarefa = new FutureTask<Object>(trabalho, null);
+		Thread t = new Thread(tarefa);
+		processo.setT(t); //seta a Thread criada no processo
+		t.start(); //inicia a Thread criada
+		return tarefa;
+	}
+
+	private class ConsultarCoordenador implements Runnable {
 
-		@Override
 		public void run() {
 			int position = Randomize.random(listaProcessos.size()); //pega um processo randomicamente
 			Processo processo = listaProcessos.get(position);
@@ -82,14 +153,27 @@ public class Gerenciador implements Serializable {
 				if (!processo.equals(coordenador)) //se o processo n�o � o coordenador, este informa quem � o coordenador
 					eleicao.notificar();
 			System.out.println(listaProcessos.toString());
-			if(coordenador == null) //caso n�o se tenha um coordenador, elege o �ltimo da lista de processos
-				eleicao.eleger(listaProcessos);
+			//a falta do coordenador e percebida pelo detector de falhas, que dispara a eleicao
 		}
 	}
 
-	private class NovoProcesso extends TimerTask {
+	private class Heartbeat implements Runnable {
+
+		public void run() {
+			if (eleicao.getCoordenador() != null) //coordenador desativado deixa de enviar heartbeats
+				detector.heartbeat();
+		}
+	}
+
+	private class VerificarCoordenador implements Runnable {
+
+		public void run() {
+			detector.verificar();
+		}
+	}
+
+	private class NovoProcesso implements Runnable {
 
-		@Override
 		public void run() {
 			Processo processo = new Processo();
 			processo.setPidId(Processo.getIID()); 
@@ -98,28 +182,28 @@ public class Gerenciador implements Serializable {
             /**
              * Inicia Produto / Consumidor
              */
-            Thread t;
+            Runnable trabalho;
             if ((processo.getIID() % 2) == 0)
             {
-                t = new Produtor(processo.getIID(), bufferCompartilhado, 2);
+                trabalho = new Produtor(processo.getIID(), bufferCompartilhado, 2, tamanhoLote);
             }
             else
             {
-                t = new Consumidor(processo.getIID(), bufferCompartilhado, 2);
+                trabalho = new Consumidor(processo.getIID(), bufferCompartilhado, 2, tamanhoLote);
             }
             
-            processo.setT(t); //seta a Thread criada no processo e adiciona o processo na lista
-            listaProcessos.add(processo);
-            
-            processo.getT().start(); //inicia a Thread criada
+            listaProcessos.add(processo); //adiciona o processo na lista e inicia o trabalho
+            Future<?> tarefa = executar(processo, trabalho);
+            processo.setTarefa(tarefa);
+            trabalhadores.removeIf(Future::isDone); //a fila nao cresce com as execucoes ja encerradas
+            trabalhadores.add(tarefa);
                         
 			System.out.println("Criando Novo Processo: "+processo);
 		}
 	}
 
-	private class EliminarProcesso extends TimerTask {
+	private class EliminarProcesso implements Runnable {
 
-		@Override
 		public void run() {
 			int position = Randomize.random(listaProcessos.size()); //elimina um processo da lista de forma rand�mica
 			Processo coordenador = eleicao.getCoordenador();
@@ -130,9 +214,8 @@ public class Gerenciador implements Serializable {
 		}
 	}
 
-	private class DesativarCoordenador extends TimerTask {
+	private class DesativarCoordenador implements Runnable {
 
-		@Override
 		public void run() {
 			Processo coordenador = eleicao.getCoordenador();
 			System.out.println("Desativando Coordenador:"+coordenador);
@@ -3,8 +3,8 @@ package servidor;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 
 public class ListaProcessos implements Serializable {
 
@@ -14,31 +14,53 @@ public class ListaProcessos implements Serializable {
 	private static final long serialVersionUID = -4985182969269446996L;
 	private Processo primeiro;
 	private Processo ultimo;
+	//indice denso na mesma ordem do anel, evita percorrer a lista a cada consulta
+	private Processo[] processos = new Processo[16];
+	private int tamanho;
+	//enquanto os pids forem adicionados em ordem crescente a busca por processo e binaria
+	private boolean crescente = true;
+	private MapaPid porPid = new MapaPid();
+	//no modo de leitura otimizada os leitores usam esta copia imutavel e nunca entram no monitor
+	private volatile Instantaneo instantaneo;
 
 	public ListaProcessos() {
 		super();
 	}
 
+	/**
+	 * @param leituraOtimizada se true, cada escrita publica uma copia imutavel do indice
+	 * (copy-on-write) e size, get, first, last, buscar, findAll e toString leem essa copia
+	 * sem bloquear as escritas. Escritas passam a custar O(n).
+	 */
+	public ListaProcessos(boolean leituraOtimizada) {
+		super();
+		if (leituraOtimizada)
+			instantaneo = new Instantaneo(new Processo[0], true);
+	}
+
 	public ListaProcessos(Processo primeiro, Processo ultimo) {
 		super();
 		this.primeiro = primeiro;
 		this.ultimo = ultimo;
+		reindexar();
 	}
 
 	public Processo getPrimeiro() {
 		return primeiro;
 	}
 
-	public void setPrimeiro(Processo primeiro) {
+	public synchronized void setPrimeiro(Processo primeiro) {
 		this.primeiro = primeiro;
+		reindexar();
 	}
 
 	public Processo getUltimo() {
 		return ultimo;
 	}
 
-	public void setUltimo(Processo ultimo) {
+	public synchronized void setUltimo(Processo ultimo) {
 		this.ultimo = ultimo;
+		reindexar();
 	}
 
 	public void add(Processo processo) {
@@ -49,90 +71,231 @@ public class ListaProcessos implements Serializable {
 			} else {
 				//como � o �ltimo o pr�ximo vai ser ele mesmo
 				ultimo.setProximo(processo);
+				if (crescente && (processo.getPidId() == null || ultimo.getPidId() == null
+						|| processo.getPidId() <= ultimo.getPidId()))
+					crescente = false;
 				ultimo = processo;
 			}
+			processo.setProximo(null);
+			if (tamanho == processos.length)
+				processos = Arrays.copyOf(processos, tamanho * 2);
+			processos[tamanho++] = processo;
+			if (processo.getPidId() != null)
+				porPid.put(processo.getPidId(), processo);
+			publicar();
 		}
 	}
 
+	//mantido por compatibilidade; prefira buscar/procurar, que nao criam excecao quando o pid nao existe
 	public Processo findById(Integer pidID) throws Exception {
-		Processo aux = primeiro;
-		while (aux != null) {
-			if (aux.getPidId() == pidID)
-				return aux;
-			aux = aux.getProximo();
+		Processo processo = pidID == null ? null : buscar(pidID);
+		if (processo == null)
+			throw new Exception("Registro n�o encontrado.");
+		return processo;
+	}
+
+	//retorna o processo com o pid ou null se nao existir
+	public Processo buscar(int pidID) {
+		Instantaneo atual = instantaneo;
+		if (atual != null)
+			return atual.buscar(pidID);
+		synchronized (this) {
+			return porPid.get(pidID);
 		}
-		throw new Exception("Registro n�o encontrado.");
 	}
 
-	public synchronized List<Processo> findAll() {
-		Processo aux = primeiro;
-		List<Processo> processos = new ArrayList<Processo>();
-		while (aux != null) {
-			processos.add(aux);
-			aux = aux.getProximo();
+	public Optional<Processo> procurar(int pidID) {
+		return Optional.ofNullable(buscar(pidID));
+	}
+
+	public List<Processo> findAll() {
+		Instantaneo atual = instantaneo;
+		if (atual != null)
+			return new ArrayList<Processo>(Arrays.asList(atual.processos));
+		synchronized (this) {
+			return new ArrayList<Processo>(Arrays.asList(processos).subList(0, tamanho));
 		}
-		return processos;
 	}
 
 	public int size() {
-		List<Processo> processos = findAll();
-		return processos.size();
-
+		Instantaneo atual = instantaneo;
+		if (atual != null)
+			return atual.processos.length;
+		synchronized (this) {
+			return tamanho;
+		}
 	}
 
-	public synchronized Processo get(int position) {
-		List<Processo> processos = findAll();
-		return position < processos.size() ? processos.get(position) : null;
+	public Processo get(int position) {
+		Instantaneo atual = instantaneo;
+		if (atual != null)
+			return position < atual.processos.length ? atual.processos[position] : null;
+		synchronized (this) {
+			return position < tamanho ? processos[position] : null;
+		}
 	}
 
 	public void remove(int position) {
 		synchronized (this) {
-			List<Processo> processos = findAll();
-			System.out.println("Removendo processo:" + processos.get(position));
-			processos.remove(position);
-			primeiro = null;
-			ultimo = null;
-			for (Processo processo : processos)
-				add(processo);
+			if (position < 0 || position >= tamanho)
+				throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + tamanho);
+			remover(position);
+			publicar();
 		}
 	}
 
 	public void remove(Processo processo) {
 		synchronized (this) {
-			List<Processo> processos = findAll();
-			System.out.println("Removendo processo:" + processo);
-			processos.remove(processo);
-			primeiro = null;
-			ultimo = null;
-			for (Processo p : processos)
-				add(p);	
+			int position = posicao(processo);
+			if (position >= 0) {
+				remover(position);
+				publicar();
+			}
 		}
 	}
 
-	public synchronized Processo first() {
-		List<Processo> processos = findAll();
-		if (processos.isEmpty())
-			return null;
-		return processos.get(0);
+	public Processo first() {
+		Instantaneo atual = instantaneo;
+		if (atual != null)
+			return atual.processos.length == 0 ? null : atual.processos[0];
+		synchronized (this) {
+			return tamanho == 0 ? null : processos[0];
+		}
+	}
+
+	public Processo last() {
+		Instantaneo atual = instantaneo;
+		if (atual != null)
+			return atual.processos.length == 0 ? null : atual.processos[atual.processos.length - 1];
+		synchronized (this) {
+			return tamanho == 0 ? null : processos[tamanho - 1];
+		}
+	}
+
+	public synchronized void order() {
+		Arrays.sort(processos, 0, tamanho, new Comparacao());
+		ligar();
+		crescente = true;
+		publicar();
+	}
+
+	//no modo de leitura otimizada troca a copia vista pelos leitores
+	private void publicar() {
+		if (instantaneo != null)
+			instantaneo = new Instantaneo(Arrays.copyOf(processos, tamanho), crescente);
+	}
+
+	//retira o processo da posicao, religando o anterior ao proximo; o deslocamento do indice e uma copia de memoria
+	private void remover(int position) {
+		Processo removido = processos[position];
+		Eventos.registrar(RegistroEventos.PROCESSO_REMOVIDO, removido.getPidId() == null ? -1 : removido.getPidId(), 0);
+		Processo proximo = removido.getProximo();
+		if (position == 0)
+			primeiro = proximo;
+		else
+			processos[position - 1].setProximo(proximo);
+		if (position == tamanho - 1)
+			ultimo = position == 0 ? null : processos[position - 1];
+		removido.setProximo(null);
+		if (removido.getPidId() != null && porPid.get(removido.getPidId()) == removido)
+			porPid.remove(removido.getPidId());
+		System.arraycopy(processos, position + 1, processos, position, tamanho - position - 1);
+		processos[--tamanho] = null;
+	}
+
+	//posicao do processo no indice pelo pid: busca binaria se os pids estao em ordem, senao linear
+	private int posicao(Processo processo) {
+		if (processo == null)
+			return -1;
+		Integer pid = processo.getPidId();
+		if (crescente && pid != null) {
+			int inicio = 0;
+			int fim = tamanho - 1;
+			while (inicio <= fim) {
+				int meio = (inicio + fim) >>> 1;
+				int atual = processos[meio].getPidId();
+				if (atual < pid)
+					inicio = meio + 1;
+				else if (atual > pid)
+					fim = meio - 1;
+				else
+					return meio;
+			}
+			return -1;
+		}
+		for (int i = 0; i < tamanho; i++)
+			if (processos[i] == processo || (pid != null && pid.equals(processos[i].getPidId())))
+				return i;
+		return -1;
+	}
+
+	//refaz os ponteiros proximo conforme a ordem do indice
+	private void ligar() {
+		for (int i = 0; i < tamanho - 1; i++)
+			processos[i].setProximo(processos[i + 1]);
+		if (tamanho > 0)
+			processos[tamanho - 1].setProximo(null);
+		primeiro = tamanho == 0 ? null : processos[0];
+		ultimo = tamanho == 0 ? null : processos[tamanho - 1];
+	}
+
+	//reconstroi o indice percorrendo a lista encadeada a partir do primeiro
+	private void reindexar() {
+		tamanho = 0;
+		crescente = true;
+		porPid.clear();
+		Processo aux = primeiro;
+		while (aux != null) {
+			if (tamanho == processos.length)
+				processos = Arrays.copyOf(processos, tamanho * 2);
+			if (tamanho > 0 && (aux.getPidId() == null || processos[tamanho - 1].getPidId() == null
+					|| aux.getPidId() <= processos[tamanho - 1].getPidId()))
+				crescente = false;
+			processos[tamanho++] = aux;
+			if (aux.getPidId() != null)
+				porPid.put(aux.getPidId(), aux);
+			if (aux == ultimo)
+				break;
+			aux = aux.getProximo();
+		}
+		Arrays.fill(processos, tamanho, processos.length, null);
+		ultimo = tamanho == 0 ? null : processos[tamanho - 1]; //add precisa do ultimo real da lista
+		publicar();
 	}
 
-	public synchronized Processo last() {
-		List<Processo> processos = findAll();
-		if (processos.isEmpty())
+	//copia imutavel do indice, publicada a cada escrita no modo de leitura otimizada
+	private static final class Instantaneo implements Serializable {
+
+		private static final long serialVersionUID = -2719373985227370546L;
+		private final Processo[] processos;
+		private final boolean crescente;
+
+		private Instantaneo(Processo[] processos, boolean crescente) {
+			this.processos = processos;
+			this.crescente = crescente;
+		}
+
+		private Processo buscar(int pid) {
+			if (crescente) {
+				int inicio = 0;
+				int fim = processos.length - 1;
+				while (inicio <= fim) {
+					int meio = (inicio + fim) >>> 1;
+					int atual = processos[meio].getPidId();
+					if (atual < pid)
+						inicio = meio + 1;
+					else if (atual > pid)
+						fim = meio - 1;
+					else
+						return processos[meio];
+				}
+				return null;
+			}
+			for (Processo processo : processos)
+				if (processo.getPidId() != null && processo.getPidId() == pid)
+					return processo;
 			return null;
-		int index = processos.size() - 1;
-		return processos.get(index);
-	}
-
-	public void order() {
-		List<Processo> processos = findAll();
-		Comparator<Processo> comparator = new Comparacao();
-		Processo lista[] = (Processo[]) processos.toArray();
-		Arrays.sort(lista, comparator);
-		primeiro = null;
-		ultimo = null;
-		for (Processo processo : processos)
-			add(processo);
+		}
 	}
 
 	public void eleicao() {
@@ -3,9 +3,20 @@ package servidor;
 public class MainApp {
 
 	public static void main(String[] args) {
-		Gerenciador gerenciador = new Gerenciador();
+		//argumentos opcionais: capacidade do buffer em anel (0 usa o Buffer de uma posicao) e modo de execucao
+		int capacidade = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+		Buffer buffer = capacidade > 0 ? new BufferAnel(capacidade) : new Buffer();
+		Gerenciador gerenciador = new Gerenciador(buffer);
+		if (args.length > 1)
+			gerenciador.setModoExecucao(ModoExecucao.valueOf(args[1].toUpperCase()));
 		gerenciador.criar(); //cria um processo "coordenador"
 		gerenciador.inicializar();
+		try {
+			Thread.sleep(20000); //tempo da simulacao
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
 		gerenciador.encerrar();
+		Eventos.encerrar(); //descarrega os eventos pendentes no console
 	}
 }
@@ -0,0 +1,104 @@
+package servidor;
+
+import java.io.Serializable;
+
+/**
+ * Mapa de pid (int) para Processo com enderecamento aberto e sondagem linear.
+ * Nao cria objetos nas consultas (sem Integer) e remove deslocando as entradas
+ * seguintes para tras, sem marcadores de remocao. Nao e sincronizado.
+ */
+class MapaPid implements Serializable {
+
+	private static final long serialVersionUID = 2610453478196418335L;
+	private int[] chaves;
+	private Processo[] valores; //posicao vazia quando o valor e null
+	private int tamanho;
+
+	MapaPid() {
+		chaves = new int[32];
+		valores = new Processo[32];
+	}
+
+	int size() {
+		return tamanho;
+	}
+
+	Processo get(int pid) {
+		int mascara = chaves.length - 1;
+		for (int i = indice(pid, mascara); valores[i] != null; i = (i + 1) & mascara)
+			if (chaves[i] == pid)
+				return valores[i];
+		return null;
+	}
+
+	void put(int pid, Processo processo) {
+		if ((tamanho + 1) * 2 > chaves.length)
+			redimensionar(chaves.length * 2);
+		int mascara = chaves.length - 1;
+		int i = indice(pid, mascara);
+		while (valores[i] != null) {
+			if (chaves[i] == pid) {
+				valores[i] = processo;
+				return;
+			}
+			i = (i + 1) & mascara;
+		}
+		chaves[i] = pid;
+		valores[i] = processo;
+		tamanho++;
+	}
+
+	Processo remove(int pid) {
+		int mascara = chaves.length - 1;
+		int i = indice(pid, mascara);
+		while (valores[i] != null) {
+			if (chaves[i] == pid) {
+				Processo removido = valores[i];
+				deslocar(i, mascara);
+				tamanho--;
+				return removido;
+			}
+			i = (i + 1) & mascara;
+		}
+		return null;
+	}
+
+	void clear() {
+		java.util.Arrays.fill(valores, null);
+		tamanho = 0;
+	}
+
+	//puxa para o buraco as entradas seguintes que nao estao na sua posicao ideal
+	private void deslocar(int buraco, int mascara) {
+		int i = buraco;
+		while (true) {
+			i = (i + 1) & mascara;
+			if (valores[i] == null)
+				break;
+			int ideal = indice(chaves[i], mascara);
+			//a entrada pode ocupar o buraco se sua posicao ideal nao esta entre o buraco e ela
+			if (((i - ideal) & mascara) >= ((i - buraco) & mascara)) {
+				chaves[buraco] = chaves[i];
+				valores[buraco] = valores[i];
+				buraco = i;
+			}
+		}
+		valores[buraco] = null;
+	}
+
+	private void redimensionar(int capacidade) {
+		int[] antigasChaves = chaves;
+		Processo[] antigosValores = valores;
+		chaves = new int[capacidade];
+		valores = new Processo[capacidade];
+		tamanho = 0;
+		for (int i = 0; i < antigasChaves.length; i++)
+			if (antigosValores[i] != null)
+				put(antigasChaves[i], antigosValores[i]);
+	}
+
+	private static int indice(int pid, int mascara) {
+		int h = pid * 0x9E3779B9; //espalha pids sequenciais
+		return (h ^ (h >>> 16)) & mascara;
+	}
+}
@@ -0,0 +1,38 @@
+package servidor;
+
+//Mensagem trocada entre os processos durante a eleicao
+public final class MensagemEleicao {
+
+	public static final int ELEICAO = 0;
+	public static final int OK = 1;
+	public static final int COORDENADOR = 2;
+	public static final int INICIAR = 3; //entregue apenas ao iniciador, nao conta como mensagem
+
+	private final int tipo;
+	private final int origem; //posicao do remetente entre os participantes
+	private final int valor; //pid candidato ou eleito
+
+	public MensagemEleicao(int tipo, int origem, int valor) {
+		this.tipo = tipo;
+		this.origem = origem;
+		this.valor = valor;
+	}
+
+	public int getTipo() {
+		return tipo;
+	}
+
+	public int getOrigem() {
+		return origem;
+	}
+
+	public int getValor() {
+		return valor;
+	}
+
+	@Override
+	public String toString() {
+		String[] nomes = { "ELEICAO", "OK", "COORDENADOR", "INICIAR" };
+		return "MensagemEleicao [tipo=" + nomes[tipo] + ", origem=" + origem + ", valor=" + valor + "]";
+	}
+}
@@ -0,0 +1,43 @@
+package servidor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Como os produtores / consumidores de cada processo sao executados
+public enum ModoExecucao {
+
+	//uma thread de plataforma nova por processo, como no codigo original
+	THREAD,
+	//threads de plataforma reaproveitadas entre processos (pool sem limite, pois os trabalhadores bloqueiam no buffer)
+	POOL,
+	//uma virtual thread por processo; exige JDK 21 ou superior, senao usa o POOL
+	VIRTUAL;
+
+	//executor para o modo, ou null no modo THREAD
+	ExecutorService criarExecutor() {
+		switch (this) {
+		case POOL:
+			return pool();
+		case VIRTUAL:
+			try {
+				//por reflexao para o projeto continuar compilando com JDK 17
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				System.err.println("Virtual threads indisponiveis nesta JVM, usando pool de threads");
+				return pool();
+			}
+		default:
+			return null;
+		}
+	}
+
+	private static ExecutorService pool() {
+		AtomicInteger contador = new AtomicInteger();
+		return Executors.newCachedThreadPool(tarefa -> {
+			Thread thread = new Thread(tarefa, "trabalhador-" + contador.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
@@ -1,6 +1,7 @@
 package servidor;
 
 import java.io.Serializable;
+import java.util.concurrent.Future;
 
 public class Processo implements Serializable {
 
@@ -10,6 +11,7 @@ public class Processo implements Serializable {
 	private Processo proximo;
 	private Processo anterior;
         private Thread t;
+	private transient Future<?> tarefa; //execucao do produtor / consumidor em qualquer ModoExecucao
 
 	public Processo() {
 		super();
@@ -64,21 +66,19 @@ public class Processo implements Serializable {
 
 	//vai enviando mensagem de um processo ao pr�ximo processo da fila
 	public void mensagem() {
-		if(proximo != null) 
-		System.err.println("[" + this + "] enviando para :[" +proximo+ "]");
-		else
-		System.err.println("[" + this + "] enviando para :[...]");
-	
+		Eventos.registrar(RegistroEventos.ELEICAO_MENSAGEM, pid(this), pid(proximo));
 	}
 	
 	//vai enviando mensagem de um processo ao pr�ximo processo da fila sobre a elei��o do coordenador
 	public void mensagem(Processo processo) {
-		if(proximo != null) 
-		System.err.println("[" + this + "] enviando para :[" +proximo+ "], coordenador eleito: ["+processo+"]");
-		else
-		System.err.println("[" + this + "] enviando para :[...]");
-	
+		Eventos.registrar(RegistroEventos.ELEICAO_COORDENADOR, pid(this), pid(proximo), pid(processo));
 	}
+
+	//pid usado no registro de eventos, -1 quando nao ha processo
+	private static int pid(Processo processo) {
+		return (processo == null || processo.pidId == null) ? -1 : processo.pidId;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
@@ -118,4 +118,12 @@ public class Processo implements Serializable {
 	public void setT(Thread t) {
 		this.t = t;
 	}
+
+	public Future<?> getTarefa() {
+		return tarefa;
+	}
+
+	public void setTarefa(Future<?> tarefa) {
+		this.tarefa = tarefa;
+	}
 }
@@ -5,22 +5,46 @@
  */
 package servidor;
 
-public class Produtor extends Thread
+import java.util.concurrent.CancellationException;
+
+public class Produtor implements Runnable
 {
     private int idProdutor;
     private Buffer pilha;
     private int producaoTotal;
+    private int tamanhoLote;
  
     public Produtor(int id, Buffer p, int producaoTotal) {
+        this(id, p, producaoTotal, 1);
+    }
+ 
+    //tamanhoLote > 1 faz o produtor usar Buffer.setAll
+    public Produtor(int id, Buffer p, int producaoTotal, int tamanhoLote) {
         idProdutor = id;
         pilha = p;
         this.producaoTotal = producaoTotal;
+        this.tamanhoLote = Math.max(1, tamanhoLote);
     }
  
     public void run() {
-        for (int i = 0; i < producaoTotal; i++) {
-            pilha.set(idProdutor, i);
+        try {
+            if (tamanhoLote == 1) {
+                for (int i = 0; i < producaoTotal; i++) {
+                    pilha.set(idProdutor, i);
+                }
+            } else {
+                int[] lote = new int[tamanhoLote];
+                for (int i = 0; i < producaoTotal; i += tamanhoLote) {
+                    int n = Math.min(tamanhoLote, producaoTotal - i);
+                    for (int j = 0; j < n; j++) {
+                        lote[j] = i + j;
+                    }
+                    pilha.setAll(idProdutor, lote, 0, n);
+                }
+            }
+        } catch (CancellationException e) {
+            return; //interrompido pelo encerramento do Gerenciador
         }
-        System.out.println("-----Produtor #" + idProdutor + " concluido!");
+        Eventos.registrar(RegistroEventos.PRODUTOR_CONCLUIDO, idProdutor, 0);
     }
 }
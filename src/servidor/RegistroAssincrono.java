@@ -0,0 +1,121 @@
+package servidor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Registro de eventos em um anel pre-alocado, escrito sem bloqueio pelas threads
+ * do sistema e descarregado no console por uma thread em segundo plano.
+ * Se o anel estiver cheio o evento e descartado (e contado), nunca espera.
+ */
+public class RegistroAssincrono implements RegistroEventos {
+
+	private static final long INTERVALO = 1000000L; //1 ms entre descargas quando o anel esta vazio
+
+	private final int[] tipos;
+	private final int[] ids;
+	private final int[] valores;
+	private final int[] extras;
+	private final AtomicLongArray sequencia;
+	private final int mascara;
+	private final AtomicLong cauda = new AtomicLong();
+	private final AtomicLong descartados = new AtomicLong();
+	private long cabeca; //so a thread de descarga altera
+	private final StringBuilder saida = new StringBuilder(4096);
+	private final StringBuilder erro = new StringBuilder(4096);
+	private final Thread descarga;
+	private volatile boolean ativo = true;
+
+	public RegistroAssincrono(int capacidade) {
+		int tamanho = Integer.highestOneBit(Math.max(2, capacidade));
+		if (tamanho < capacidade)
+			tamanho <<= 1;
+		tipos = new int[tamanho];
+		ids = new int[tamanho];
+		valores = new int[tamanho];
+		extras = new int[tamanho];
+		sequencia = new AtomicLongArray(tamanho);
+		for (int i = 0; i < tamanho; i++)
+			sequencia.set(i, i);
+		mascara = tamanho - 1;
+		descarga = new Thread(this::executar, "registro-eventos");
+		descarga.setDaemon(true);
+		descarga.start();
+	}
+
+	public void registrar(int tipo, int id, int valor, int extra) {
+		while (true) {
+			long posicao = cauda.get();
+			int indice = (int) posicao & mascara;
+			long diferenca = sequencia.get(indice) - posicao;
+			if (diferenca == 0) {
+				if (!cauda.compareAndSet(posicao, posicao + 1))
+					continue;
+				tipos[indice] = tipo;
+				ids[indice] = id;
+				valores[indice] = valor;
+				extras[indice] = extra;
+				sequencia.lazySet(indice, posicao + 1);
+				return;
+			}
+			if (diferenca < 0) {
+				descartados.incrementAndGet(); //anel cheio
+				return;
+			}
+		}
+	}
+
+	public long getDescartados() {
+		return descartados.get();
+	}
+
+	//para a thread de descarga depois de escrever os eventos pendentes
+	public void encerrar() {
+		ativo = false;
+		LockSupport.unpark(descarga);
+		try {
+			descarga.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void executar() {
+		while (ativo) {
+			if (descarregar() == 0)
+				LockSupport.parkNanos(this, INTERVALO);
+		}
+		descarregar();
+		long perdidos = descartados.get();
+		if (perdidos > 0)
+			System.err.println("Registro de eventos: " + perdidos + " eventos descartados");
+	}
+
+	private int descarregar() {
+		int lidos = 0;
+		while (true) {
+			int indice = (int) cabeca & mascara;
+			if (sequencia.get(indice) != cabeca + 1)
+				break;
+			int tipo = tipos[indice];
+			StringBuilder linha = RegistroEventos.erro(tipo) ? erro : saida;
+			RegistroEventos.descrever(linha, tipo, ids[indice], valores[indice], extras[indice]);
+			linha.append(System.lineSeparator());
+			sequencia.lazySet(indice, cabeca + mascara + 1);
+			cabeca++;
+			lidos++;
+		}
+		if (saida.length() > 0) {
+			System.out.print(saida);
+			System.out.flush();
+			saida.setLength(0);
+		}
+		if (erro.length() > 0) {
+			System.err.print(erro);
+			System.err.flush();
+			erro.setLength(0);
+		}
+		return lidos;
+	}
+}
@@ -0,0 +1,99 @@
+package servidor;
+
+import java.io.PrintStream;
+
+/**
+ * Destino dos eventos do buffer, dos produtores / consumidores e da eleicao.
+ * Os eventos sao apenas inteiros, para que registrar nao aloque memoria; o texto
+ * so e montado por quem consome o registro.
+ */
+public interface RegistroEventos {
+
+	int PRODUTOR_ESPERANDO = 0;
+	int PRODUZIU = 1;
+	int PRODUZIU_LOTE = 2;
+	int PRODUTOR_CONCLUIDO = 3;
+	int CONSUMIDOR_ESPERANDO = 4;
+	int CONSUMIU = 5;
+	int CONSUMIU_LOTE = 6;
+	int CONSUMIDOR_CONCLUIDO = 7;
+	int ELEICAO_MENSAGEM = 8; //id = remetente, valor = destino
+	int ELEICAO_COORDENADOR = 9; //id = remetente, valor = destino, extra = coordenador
+	int PROCESSO_REMOVIDO = 10;
+
+	//descarta todos os eventos
+	RegistroEventos DESLIGADO = new RegistroEventos() {
+		public void registrar(int tipo, int id, int valor, int extra) {
+		}
+	};
+
+	//escreve cada evento imediatamente, como o codigo original fazia
+	RegistroEventos CONSOLE = new RegistroEventos() {
+		public void registrar(int tipo, int id, int valor, int extra) {
+			StringBuilder linha = new StringBuilder(64);
+			descrever(linha, tipo, id, valor, extra);
+			saida(tipo).println(linha);
+		}
+	};
+
+	void registrar(int tipo, int id, int valor, int extra);
+
+	static PrintStream saida(int tipo) {
+		return erro(tipo) ? System.err : System.out;
+	}
+
+	//mensagens da eleicao sempre foram escritas na saida de erro
+	static boolean erro(int tipo) {
+		return tipo == ELEICAO_MENSAGEM || tipo == ELEICAO_COORDENADOR;
+	}
+
+	static void descrever(StringBuilder linha, int tipo, int id, int valor, int extra) {
+		switch (tipo) {
+		case PRODUTOR_ESPERANDO:
+			linha.append("-----Produtor #").append(id).append(" esperando...");
+			break;
+		case PRODUZIU:
+			linha.append("-----Produtor #").append(id).append(" colocou ").append(valor);
+			break;
+		case PRODUZIU_LOTE:
+			linha.append("-----Produtor #").append(id).append(" colocou ").append(valor).append(" valores");
+			break;
+		case PRODUTOR_CONCLUIDO:
+			linha.append("-----Produtor #").append(id).append(" concluido!");
+			break;
+		case CONSUMIDOR_ESPERANDO:
+			linha.append("-----Consumidor #").append(id).append(" esperado...");
+			break;
+		case CONSUMIU:
+			linha.append("-----Consumidor #").append(id).append(" consumiu: ").append(valor);
+			break;
+		case CONSUMIU_LOTE:
+			linha.append("-----Consumidor #").append(id).append(" consumiu ").append(valor).append(" valores");
+			break;
+		case CONSUMIDOR_CONCLUIDO:
+			linha.append("-----Consumidor #").append(id).append(" concluido!");
+			break;
+		case ELEICAO_MENSAGEM:
+			linha.append("[Processo [pidId=").append(id).append("]] enviando para :[");
+			processo(linha, valor).append(']');
+			break;
+		case ELEICAO_COORDENADOR:
+			linha.append("[Processo [pidId=").append(id).append("]] enviando para :[");
+			processo(linha, valor).append(']');
+			if (valor >= 0)
+				linha.append(", coordenador eleito: [Processo [pidId=").append(extra).append("]]");
+			break;
+		case PROCESSO_REMOVIDO:
+			linha.append("Removendo processo:");
+			processo(linha, id);
+			break;
+		default:
+			linha.append("evento ").append(tipo).append(' ').append(id).append(' ').append(valor).append(' ').append(extra);
+		}
+	}
+
+	//pid negativo indica que nao ha proximo processo
+	static StringBuilder processo(StringBuilder linha, int pid) {
+		return pid < 0 ? linha.append("...") : linha.append("Processo [pidId=").append(pid).append(']');
+	}
+}
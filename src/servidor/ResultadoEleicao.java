@@ -0,0 +1,45 @@
+package servidor;
+
+//Resultado de uma execucao do algoritmo de eleicao
+public class ResultadoEleicao {
+
+	private final String algoritmo;
+	private final Processo coordenador;
+	private final int participantes;
+	private final long mensagens;
+	private final long latenciaNanos;
+
+	public ResultadoEleicao(String algoritmo, Processo coordenador, int participantes, long mensagens, long latenciaNanos) {
+		this.algoritmo = algoritmo;
+		this.coordenador = coordenador;
+		this.participantes = participantes;
+		this.mensagens = mensagens;
+		this.latenciaNanos = latenciaNanos;
+	}
+
+	public String getAlgoritmo() {
+		return algoritmo;
+	}
+
+	public Processo getCoordenador() {
+		return coordenador;
+	}
+
+	public int getParticipantes() {
+		return participantes;
+	}
+
+	public long getMensagens() {
+		return mensagens;
+	}
+
+	public long getLatenciaNanos() {
+		return latenciaNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "ResultadoEleicao [algoritmo=" + algoritmo + ", coordenador=" + coordenador + ", participantes="
+				+ participantes + ", mensagens=" + mensagens + ", latencia=" + (latenciaNanos / 1000) + "us]";
+	}
+}
@@ -0,0 +1,72 @@
+package servidor;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transporte em memoria entre os participantes de uma eleicao. Cada participante tem
+ * uma caixa de mensagens processada por no maximo uma tarefa por vez no executor, entao
+ * o estado de cada participante nao precisa de sincronizacao.
+ */
+public class TransporteEleicao {
+
+	//tratamento das mensagens de um participante
+	public interface Receptor {
+		void receber(int destino, MensagemEleicao mensagem);
+	}
+
+	private final Executor executor;
+	private final Receptor receptor;
+	private final int[] pids;
+	private final ConcurrentLinkedQueue<MensagemEleicao>[] caixas;
+	private final AtomicBoolean[] agendado;
+	private final AtomicLong mensagens = new AtomicLong();
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public TransporteEleicao(Executor executor, int[] pids, Receptor receptor) {
+		this.executor = executor;
+		this.receptor = receptor;
+		this.pids = pids;
+		caixas = new ConcurrentLinkedQueue[pids.length];
+		agendado = new AtomicBoolean[pids.length];
+		for (int i = 0; i < pids.length; i++) {
+			caixas[i] = new ConcurrentLinkedQueue<MensagemEleicao>();
+			agendado[i] = new AtomicBoolean();
+		}
+	}
+
+	public void enviar(int destino, MensagemEleicao mensagem) {
+		mensagens.incrementAndGet();
+		Eventos.registrar(RegistroEventos.ELEICAO_MENSAGEM, pids[mensagem.getOrigem()], pids[destino]);
+		caixas[destino].add(mensagem);
+		agendar(destino);
+	}
+
+	//entrega sem contar como mensagem trocada, usado para disparar o iniciador
+	public void entregar(int destino, MensagemEleicao mensagem) {
+		caixas[destino].add(mensagem);
+		agendar(destino);
+	}
+
+	//total de mensagens enviadas desde a criacao do transporte
+	public long getMensagens() {
+		return mensagens.get();
+	}
+
+	private void agendar(int destino) {
+		if (agendado[destino].compareAndSet(false, true))
+			executor.execute(() -> processar(destino));
+	}
+
+	private void processar(int destino) {
+		MensagemEleicao mensagem;
+		while ((mensagem = caixas[destino].poll()) != null)
+			receptor.receber(destino, mensagem);
+		agendado[destino].set(false);
+		//uma mensagem pode ter chegado entre o ultimo poll e a liberacao
+		if (!caixas[destino].isEmpty())
+			agendar(destino);
+	}
+}
@@ -0,0 +1,125 @@
+package tokenring;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Gerador de carga sem console: sobe N nos em localhost, cada um recebendo trabalho a uma
+ * taxa fixa, e mede o tempo de volta do token e a vazao da secao critica.
+ * Uso: Carga [N] [segundos] [mensagens/s por no] [porta base] [-servidor] [-falha] [-binario] [-imediato] [-nagle]
+ * Sem -servidor a secao critica apenas conta as mensagens. Com -falha o no 1 cai segurando
+ * o token na metade da medicao e e medido o tempo ate o token ser regenerado.
+ * -imediato escreve cada mensagem no socket do Servidor (sem lotes); -nagle desliga TCP_NODELAY.
+ */
+public class Carga {
+
+	public static void main(String args[]) throws IOException, InterruptedException {
+		List<Integer> numeros = new ArrayList<Integer>();
+		boolean comServidor = false;
+		boolean comFalha = false;
+		boolean binario = false;
+		PoliticaEnvio politica = PoliticaEnvio.PADRAO;
+		boolean semAtraso = true;
+		for (String arg : args) {
+			if (arg.equals("-servidor"))
+				comServidor = true;
+			else if (arg.equals("-falha"))
+				comFalha = true;
+			else if (arg.equals("-binario"))
+				binario = true;
+			else if (arg.equals("-imediato"))
+				politica = PoliticaEnvio.IMEDIATA;
+			else if (arg.equals("-nagle"))
+				semAtraso = false;
+			else
+				numeros.add(Integer.parseInt(arg));
+		}
+		int quantidade = numeros.size() > 0 ? numeros.get(0) : 4;
+		int segundos = numeros.size() > 1 ? numeros.get(1) : 10;
+		int taxa = numeros.size() > 2 ? numeros.get(2) : 1000;
+		int portaBase = numeros.size() > 3 ? numeros.get(3) : 7101;
+
+		List<InetSocketAddress> membros = No.local(quantidade, portaBase);
+		InetSocketAddress servidor = comServidor ? new InetSocketAddress("localhost", Servidor.PORTA) : null;
+		List<No> nos = new ArrayList<No>();
+		for (int i = 0; i < quantidade; i++) {
+			No no = new No(i, membros, servidor);
+			no.setBinario(binario);
+			no.setPoliticaServidor(politica);
+			no.setSemAtraso(semAtraso);
+			no.setMaximoPorEntrada(1000); //sob carga alta o dono do token nao monopoliza o anel
+			no.escutar();
+			nos.add(no);
+		}
+		for (No no : nos)
+			no.conectar();
+
+		long inicio = System.nanoTime();
+		long fim = inicio + segundos * 1000000000L;
+		for (No no : nos) {
+			no.iniciar(no.getId() == 0);
+			if (taxa > 0)
+				gerar(no, taxa, fim);
+		}
+		No falho = comFalha && quantidade > 1 ? nos.get(1) : null;
+		if (falho != null) {
+			Thread.sleep(segundos * 500L);
+			falho.falhar();
+			Thread.sleep(segundos * 500L);
+		} else {
+			Thread.sleep(segundos * 1000L);
+		}
+		long duracao = System.nanoTime() - inicio;
+		for (No no : nos)
+			if (no.isAtivo())
+				no.encerrar();
+
+		long voltas = 0, somaVoltas = 0, maiorVolta = 0, entradas = 0, mensagens = 0;
+		for (No no : nos) {
+			System.out.println(no);
+			voltas += no.getVoltas();
+			somaVoltas += no.getVoltaMediaNanos() * no.getVoltas();
+			maiorVolta = Math.max(maiorVolta, no.getMaiorVoltaNanos());
+			entradas += no.getEntradas();
+			mensagens += no.getMensagens();
+		}
+		double segundosMedidos = duracao / 1e9;
+		System.out.println("Nos: " + quantidade + ", volta media: " + (voltas == 0 ? 0 : somaVoltas / voltas / 1000)
+				+ " us, maior volta: " + (maiorVolta / 1000) + " us, entradas na secao critica/s: "
+				+ (long) (entradas / segundosMedidos) + ", mensagens/s: " + (long) (mensagens / segundosMedidos));
+		if (falho != null)
+			System.out.println("Recuperacao apos a queda do no 1: " + recuperacao(nos, falho.getInstanteFalha()));
+	}
+
+	//tempo entre a queda do no com o token e o primeiro token regenerado depois dela
+	private static String recuperacao(List<No> nos, long instanteFalha) {
+		if (instanteFalha == 0)
+			return "o no nao chegou a cair";
+		long regenerado = Long.MAX_VALUE;
+		for (No no : nos)
+			if (no.getUltimaRegeneracao() > instanteFalha)
+				regenerado = Math.min(regenerado, no.getUltimaRegeneracao());
+		return regenerado == Long.MAX_VALUE ? "token nao regenerado" : ((regenerado - instanteFalha) / 1000000) + " ms";
+	}
+
+	//adiciona trabalho ao no em intervalos regulares ate o fim da medicao
+	private static void gerar(No no, int taxa, long fim) {
+		Thread t = new Thread(() -> {
+			long intervalo = 1000000000L / taxa;
+			long proximo = System.nanoTime();
+			int sequencia = 0;
+			while (proximo < fim) {
+				no.adicionarTrabalho("no " + no.getId() + " dado " + sequencia++);
+				proximo += intervalo;
+				long espera = proximo - System.nanoTime();
+				if (espera > 0)
+					LockSupport.parkNanos(espera);
+			}
+		}, "carga-" + no.getId());
+		t.setDaemon(true);
+		t.start();
+	}
+}
@@ -1,40 +1,12 @@
 package tokenring;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintStream;
-import java.net.Socket;
 
+//no 1 de um anel de dois nos em localhost (portas 7001 e 7002); veja No para N nos
+//Uso: ClienteDois [-binario]
 public class ClienteDois {
 	
 	public static void main(String args[]) throws IOException {
-        
-		Socket s = new Socket("localhost",7000);
-        PrintStream out = new PrintStream(s.getOutputStream());
-
-        Socket s2 = new Socket("localhost",7001);
-        BufferedReader in2 = new BufferedReader(new InputStreamReader(s2.getInputStream()));
-        PrintStream out2 = new PrintStream(s2.getOutputStream());
-        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-        String str;
-       
-        while(true) {
-            System.out.println("Esperando pelo Token");
-            str = in2.readLine();
-            
-            if(str.equalsIgnoreCase("Token")) {
-                System.out.println("Voc� quer enviar algum dado?");
-                System.out.println("Digite Sim ou Nao");
-                str = br.readLine();
-                
-                if(str.equalsIgnoreCase("Sim")) {
-                    System.out.println("Digite algum dado");
-                    str = br.readLine();
-                    out.println(str);
-                }
-                out2.println("Token");
-            }
-        }
-    }
+		No.main(args.length > 0 ? new String[] { "1", "2", args[0] } : new String[] { "1", "2" });
+	}
 }
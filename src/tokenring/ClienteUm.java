@@ -1,43 +1,12 @@
 package tokenring;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintStream;
-import java.net.ServerSocket;
-import java.net.Socket;
 
+//no 0 de um anel de dois nos em localhost (portas 7001 e 7002); veja No para N nos
+//Uso: ClienteUm [-binario]
 public class ClienteUm {
 	
 	public static void main(String args[]) throws IOException {
-        
-		Socket s = new Socket("localhost", 7000);
-        PrintStream out = new PrintStream(s.getOutputStream());
-        
-        ServerSocket ss = new ServerSocket(7001);
-        Socket s1 = ss.accept();
-        
-        BufferedReader in1 = new BufferedReader(new InputStreamReader(s1.getInputStream()));
-        PrintStream out1 = new PrintStream(s1.getOutputStream());
-        BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
-        String str = "Token";
-        
-        while(true) {
-     
-            if(str.equalsIgnoreCase("Token")) {
-                System.out.println("Você quer enviar algum dado?");
-                System.out.println("Digite Sim ou Nao");
-                str = br.readLine();
-                
-                if(str.equalsIgnoreCase("Sim")) {
-                    System.out.println("Digite algum dado");
-                    str = br.readLine();
-                    out.println(str);
-                }
-                out1.println("Token");
-            }
-            System.out.println("Esperando pelo Token");
-            str = in1.readLine();
-        }
-    }
+		No.main(args.length > 0 ? new String[] { "0", "2", args[0] } : new String[] { "0", "2" });
+	}
 }
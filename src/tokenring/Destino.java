@@ -0,0 +1,138 @@
+package tokenring;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Para onde o Servidor manda as mensagens recebidas. As mensagens sao acumuladas e
+ * escritas de uma vez em descarregar, chamado pelo Servidor ao fim de cada volta do seletor.
+ * Os metodos sao sincronizados porque todos os seletores compartilham o mesmo destino.
+ */
+public interface Destino {
+
+	//mensagem sem o separador de linha
+	void receber(byte[] dados, int inicio, int tamanho) throws IOException;
+
+	void descarregar() throws IOException;
+
+	//console | arquivo=<caminho> | anel=<capacidade>
+	public static Destino criar(String descricao) throws IOException {
+		if (descricao.startsWith("arquivo="))
+			return new Arquivo(descricao.substring("arquivo=".length()));
+		if (descricao.startsWith("anel="))
+			return new Anel(Integer.parseInt(descricao.substring("anel=".length())));
+		if (descricao.equals("console"))
+			return new Console(System.out);
+		throw new IllegalArgumentException("Destino desconhecido: " + descricao);
+	}
+
+	//agrupa as linhas e faz uma escrita no console por volta do seletor, em vez de uma por mensagem
+	public static final class Console implements Destino {
+
+		private final PrintStream saida;
+		private byte[] lote = new byte[8192];
+		private int tamanho;
+
+		public Console(PrintStream saida) {
+			this.saida = saida;
+		}
+
+		public synchronized void receber(byte[] dados, int inicio, int tamanho) {
+			if (this.tamanho + tamanho + 1 > lote.length)
+				lote = Arrays.copyOf(lote, Math.max(lote.length * 2, this.tamanho + tamanho + 1));
+			System.arraycopy(dados, inicio, lote, this.tamanho, tamanho);
+			this.tamanho += tamanho;
+			lote[this.tamanho++] = '\n';
+		}
+
+		public synchronized void descarregar() {
+			if (tamanho == 0)
+				return;
+			saida.write(lote, 0, tamanho);
+			saida.flush();
+			tamanho = 0;
+		}
+	}
+
+	//acrescenta as mensagens em um arquivo por um buffer direto
+	public static final class Arquivo implements Destino {
+
+		private final FileChannel canal;
+		private final ByteBuffer lote = ByteBuffer.allocateDirect(64 * 1024);
+
+		public Arquivo(String caminho) throws IOException {
+			canal = FileChannel.open(Paths.get(caminho), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+		}
+
+		public synchronized void receber(byte[] dados, int inicio, int tamanho) throws IOException {
+			while (tamanho + 1 > lote.remaining()) {
+				if (lote.position() == 0) { //mensagem maior que o buffer
+					escrever(ByteBuffer.wrap(dados, inicio, tamanho));
+					lote.put((byte) '\n');
+					return;
+				}
+				descarregar();
+			}
+			lote.put(dados, inicio, tamanho).put((byte) '\n');
+		}
+
+		public synchronized void descarregar() throws IOException {
+			lote.flip();
+			escrever(lote);
+			lote.clear();
+		}
+
+		private void escrever(ByteBuffer dados) throws IOException {
+			while (dados.hasRemaining())
+				canal.write(dados);
+		}
+	}
+
+	//guarda apenas as ultimas mensagens em memoria, reaproveitando os vetores de cada posicao
+	public static final class Anel implements Destino {
+
+		private final byte[][] mensagens;
+		private final int[] tamanhos;
+		private long total;
+
+		public Anel(int capacidade) {
+			mensagens = new byte[capacidade][];
+			tamanhos = new int[capacidade];
+		}
+
+		public synchronized void receber(byte[] dados, int inicio, int tamanho) {
+			int posicao = (int) (total++ % mensagens.length);
+			if (mensagens[posicao] == null || mensagens[posicao].length < tamanho)
+				mensagens[posicao] = new byte[Math.max(tamanho, 64)];
+			System.arraycopy(dados, inicio, mensagens[posicao], 0, tamanho);
+			tamanhos[posicao] = tamanho;
+		}
+
+		public void descarregar() {
+		}
+
+		public synchronized long getTotal() {
+			return total;
+		}
+
+		//as mensagens guardadas, da mais antiga para a mais recente
+		public synchronized List<String> ultimas() {
+			int quantidade = (int) Math.min(total, mensagens.length);
+			List<String> ultimas = new ArrayList<String>(quantidade);
+			for (long i = total - quantidade; i < total; i++) {
+				int posicao = (int) (i % mensagens.length);
+				ultimas.add(new String(mensagens[posicao], 0, tamanhos[posicao], StandardCharsets.UTF_8));
+			}
+			return ultimas;
+		}
+	}
+}
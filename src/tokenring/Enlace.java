@@ -0,0 +1,136 @@
+package tokenring;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+//conexao do anel que troca Quadros no protocolo texto ou binario, com escrita em lotes conforme a PoliticaEnvio
+final class Enlace implements Closeable {
+
+	//descarrega os lotes vencidos pela politica de tempo de todos os enlaces
+	private static final ScheduledExecutorService relogio = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "enlace-lotes");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final Socket socket;
+	private final boolean binario;
+	private final PoliticaEnvio politica;
+	private final DataOutputStream saida;
+	private final DataInputStream entrada;
+	private BufferedReader leitor; //apenas no protocolo texto
+	private boolean pendente; //ha mensagens no lote ainda nao escritas no socket
+	private long pendenteDesde;
+	private ScheduledFuture<?> verificacao;
+
+	private Enlace(Socket socket, boolean binario, BufferedInputStream entrada, PoliticaEnvio politica) throws IOException {
+		this.socket = socket;
+		this.binario = binario;
+		this.politica = politica;
+		//o buffer enche e e escrito sozinho ao atingir o tamanho do lote
+		this.saida = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), Math.max(politica.getBytes(), 512)));
+		this.entrada = new DataInputStream(entrada);
+		if (!binario)
+			leitor = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+		if (politica.getBytes() > 0 && politica.getTempo() > 0) {
+			long periodo = Math.max(1, politica.getTempo() / 2);
+			verificacao = relogio.scheduleAtFixedRate(this::descarregarVencido, periodo, periodo, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	//lado que conecta: escolhe o protocolo e o anuncia com o byte MAGICO
+	static Enlace conectar(Socket socket, boolean binario) throws IOException {
+		return conectar(socket, binario, PoliticaEnvio.IMEDIATA);
+	}
+
+	static Enlace conectar(Socket socket, boolean binario, PoliticaEnvio politica) throws IOException {
+		Enlace enlace = new Enlace(socket, binario, new BufferedInputStream(socket.getInputStream()), politica);
+		if (binario) {
+			enlace.saida.write(Quadro.MAGICO);
+			enlace.saida.flush();
+		}
+		return enlace;
+	}
+
+	//lado que aceita: descobre o protocolo pelo primeiro byte recebido
+	static Enlace aceitar(Socket socket) throws IOException {
+		BufferedInputStream entrada = new BufferedInputStream(socket.getInputStream());
+		entrada.mark(1);
+		boolean binario = entrada.read() == (Quadro.MAGICO & 0xFF);
+		if (!binario)
+			entrada.reset();
+		return new Enlace(socket, binario, entrada, PoliticaEnvio.IMEDIATA);
+	}
+
+	synchronized void enviar(Quadro quadro) throws IOException {
+		if (binario) {
+			quadro.escrever(saida);
+		} else {
+			saida.write(quadro.texto().getBytes(StandardCharsets.UTF_8));
+			saida.write('\n');
+		}
+		if (politica.getBytes() == 0) {
+			saida.flush();
+		} else if (!pendente) {
+			pendente = true;
+			pendenteDesde = System.nanoTime();
+		}
+	}
+
+	//escreve no socket o que estiver no lote
+	synchronized void descarregar() throws IOException {
+		if (pendente) {
+			saida.flush();
+			pendente = false;
+		}
+	}
+
+	PoliticaEnvio getPolitica() {
+		return politica;
+	}
+
+	private synchronized void descarregarVencido() {
+		if (pendente && System.nanoTime() - pendenteDesde >= TimeUnit.MILLISECONDS.toNanos(politica.getTempo())) {
+			try {
+				descarregar();
+			} catch (IOException e) {
+				verificacao.cancel(false); //conexao perdida, quem envia percebe no proximo quadro
+			}
+		}
+	}
+
+	//retorna null no fim da conexao
+	Quadro receber() throws IOException {
+		if (binario)
+			return Quadro.ler(entrada);
+		String linha = leitor.readLine();
+		return linha == null ? null : Quadro.deTexto(linha);
+	}
+
+	boolean isBinario() {
+		return binario;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (verificacao != null)
+			verificacao.cancel(false);
+		try {
+			descarregar();
+		} catch (IOException e) {
+		}
+		socket.close();
+	}
+}
@@ -0,0 +1,628 @@
+package tokenring;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/*
+ * No de um anel com N membros. Cada no escuta no seu endereco, conecta no sucessor e
+ * repassa o token automaticamente; so entra na secao critica (envia dados ao Servidor)
+ * quando tem trabalho pendente.
+ * O token carrega um numero de geracao. Se o token nao passa pelo no dentro do tempo
+ * limite, o no propoe uma nova geracao com "Regen <geracao> <id>", que circula pelo anel
+ * como uma eleicao de Chang-Roberts: so a maior proposta (geracao, id) da a volta completa
+ * e seu autor emite o novo token; tokens de geracoes anteriores sao descartados.
+ * Se o sucessor nao confirma (ACK) o token no tempo limite, o no reconecta nele; se nao
+ * consegue, ou se o sucessor cai, passa a enviar para o proximo membro vivo e volta ao
+ * sucessor original quando ele retorna ao anel.
+ * As mensagens sao Quadros, no protocolo texto ou binario (veja Quadro).
+ * Uso: No <id> <arquivo com um host:porta por linha> [-binario]
+ *      No <id> <N> [porta base] [-binario]
+ */
+public class No {
+
+	public static final String TOKEN = "Token";
+	public static final String REGEN = "Regen";
+	public static final String ACK = "Ack";
+	private static final byte SUCESSOR_CAIU = -1; //evento interno, nao trafega no anel
+	private static final byte ACORDAR = 0;
+	static final int PORTA_BASE = 7001;
+	private static final long LIMITE_CONEXAO = 30000; //ms tentando conectar no sucessor
+
+	private final int id;
+	private final List<InetSocketAddress> membros;
+	private final InetSocketAddress servidor; //null: a secao critica so conta as mensagens
+	private final BlockingQueue<String> pendentes = new LinkedBlockingQueue<String>();
+	private final BlockingQueue<String> difusoes = new LinkedBlockingQueue<String>();
+	//mensagens do anel e eventos internos, tratados apenas pela thread do no
+	private final BlockingQueue<Quadro> fila = new LinkedBlockingQueue<Quadro>();
+	private ServerSocket escuta;
+	private final List<Enlace> antecessores = new CopyOnWriteArrayList<Enlace>();
+	private Enlace sucessor; //null quando o no esta sozinho no anel
+	private int indiceSucessor;
+	private Enlace saidaServidor;
+	private boolean binario;
+	private PoliticaEnvio politicaServidor = PoliticaEnvio.PADRAO;
+	private boolean semAtraso = true; //TCP_NODELAY: o no ja agrupa as escritas, o algoritmo de Nagle so atrasaria o token
+	private Consumer<String> receptor;
+	private volatile boolean ativo = true;
+	private volatile boolean falhaPendente;
+	private long esperaOciosa; //ms que o token espera por trabalho antes de seguir
+	private int maximoPorEntrada = Integer.MAX_VALUE;
+	private long tempoLimiteMinimo = 1000; //ms sem token ate propor uma nova geracao
+
+	//estado da regeneracao
+	private long geracao;
+	private long propostaGeracao;
+	private int propostaOrigem = -1;
+	private long ultimaAtividade;
+	private long ackPendente = -1; //geracao do token repassado ainda sem confirmacao
+	private long prazoAck;
+	private long conexaoSucessor; //numero da conexao atual com o sucessor, descarta avisos de conexoes antigas
+	private long proximaRestauracao; //antes deste instante nao tenta voltar ao sucessor original
+	private long sequenciaDados;
+
+	//metricas, alteradas apenas pela thread do no
+	private volatile long voltas;
+	private volatile long somaVoltasNanos;
+	private volatile long maiorVoltaNanos;
+	private volatile long entradas;
+	private volatile long mensagens;
+	private volatile long regeneracoes;
+	private volatile long ultimaRegeneracao;
+	private volatile long descartados;
+	private volatile long instanteFalha;
+	private long ultimoToken;
+
+	public No(int id, List<InetSocketAddress> membros, InetSocketAddress servidor) {
+		this.id = id;
+		this.membros = membros;
+		this.servidor = servidor;
+	}
+
+	public static void main(String args[]) throws IOException {
+		List<String> posicionais = new ArrayList<String>();
+		boolean binario = false;
+		for (String arg : args) {
+			if (arg.equals("-binario"))
+				binario = true;
+			else
+				posicionais.add(arg);
+		}
+		if (posicionais.size() < 2) {
+			System.out.println("Uso: No <id> <arquivo de membros> | No <id> <N> [porta base] [-binario]");
+			return;
+		}
+		int id = Integer.parseInt(posicionais.get(0));
+		List<InetSocketAddress> membros = posicionais.get(1).matches("\\d+")
+				? local(Integer.parseInt(posicionais.get(1)),
+						posicionais.size() > 2 ? Integer.parseInt(posicionais.get(2)) : PORTA_BASE)
+				: configuracao(posicionais.get(1));
+		No no = new No(id, membros, new InetSocketAddress("localhost", Servidor.PORTA));
+		no.setBinario(binario);
+		no.setEsperaOciosa(100);
+		no.setTempoLimite(Math.max(1000, 4 * membros.size() * 100));
+		no.setReceptor(dado -> System.out.println("Recado pelo anel: " + dado));
+		no.escutar();
+		no.conectar();
+		no.iniciar(id == 0);
+		no.lerTrabalhoDoConsole();
+	}
+
+	//registro local: N membros em localhost, portas consecutivas a partir da porta base
+	public static List<InetSocketAddress> local(int quantidade, int portaBase) {
+		List<InetSocketAddress> membros = new ArrayList<InetSocketAddress>();
+		for (int i = 0; i < quantidade; i++)
+			membros.add(new InetSocketAddress("localhost", portaBase + i));
+		return membros;
+	}
+
+	//arquivo de configuracao: um host:porta por linha, na ordem do anel
+	public static List<InetSocketAddress> configuracao(String arquivo) throws IOException {
+		List<InetSocketAddress> membros = new ArrayList<InetSocketAddress>();
+		for (String linha : Files.readAllLines(Paths.get(arquivo))) {
+			linha = linha.trim();
+			if (linha.isEmpty() || linha.startsWith("#"))
+				continue;
+			int separador = linha.lastIndexOf(':');
+			membros.add(new InetSocketAddress(linha.substring(0, separador), Integer.parseInt(linha.substring(separador + 1))));
+		}
+		return membros;
+	}
+
+	//protocolo usado nas conexoes que este no abre (sucessor e servidor); deve ser chamado antes de conectar
+	public void setBinario(boolean binario) {
+		this.binario = binario;
+	}
+
+	//como os dados da secao critica sao agrupados antes de ir ao servidor; deve ser chamado antes de conectar
+	public void setPoliticaServidor(PoliticaEnvio politicaServidor) {
+		this.politicaServidor = politicaServidor;
+	}
+
+	//TCP_NODELAY das conexoes abertas por este no; deve ser chamado antes de conectar
+	public void setSemAtraso(boolean semAtraso) {
+		this.semAtraso = semAtraso;
+	}
+
+	public void setEsperaOciosa(long esperaOciosa) {
+		this.esperaOciosa = esperaOciosa;
+	}
+
+	//limita quantas mensagens sao enviadas por entrada na secao critica
+	public void setMaximoPorEntrada(int maximoPorEntrada) {
+		this.maximoPorEntrada = maximoPorEntrada;
+	}
+
+	//tempo minimo sem ver o token ate propor uma nova geracao; o limite real acompanha a volta media
+	public void setTempoLimite(long tempoLimiteMinimo) {
+		this.tempoLimiteMinimo = tempoLimiteMinimo;
+	}
+
+	//recebe os recados que outros nos mandaram de carona no token
+	public void setReceptor(Consumer<String> receptor) {
+		this.receptor = receptor;
+	}
+
+	public void adicionarTrabalho(String dado) {
+		pendentes.add(dado);
+	}
+
+	//envia um recado a todos os nos de carona no token, sem quadros adicionais
+	public void difundir(String dado) {
+		difusoes.add(dado);
+	}
+
+	public int getPendentes() {
+		return pendentes.size();
+	}
+
+	//abre a porta do no e aceita o antecessor
+	public void escutar() throws IOException {
+		escuta = new ServerSocket(membros.get(id).getPort());
+		iniciarThread("escuta-" + id, () -> {
+			while (ativo) {
+				try {
+					Socket antecessor = escuta.accept();
+					iniciarThread("leitor-" + id, () -> ler(antecessor));
+				} catch (IOException e) {
+					if (ativo)
+						e.printStackTrace();
+				}
+			}
+		});
+	}
+
+	//conecta no sucessor e no servidor, tentando ate o sucessor estar escutando
+	public void conectar() throws IOException {
+		int indice = (id + 1) % membros.size();
+		if (indice != id)
+			usarSucessor(indice, abrir(membros.get(indice)));
+		else
+			indiceSucessor = id;
+		if (servidor != null) {
+			Socket conexao = abrir(servidor);
+			conexao.setTcpNoDelay(semAtraso);
+			saidaServidor = Enlace.conectar(conexao, binario, politicaServidor);
+		}
+	}
+
+	public void iniciar(boolean comToken) {
+		if (comToken)
+			fila.add(Quadro.token(geracao));
+		Thread t = new Thread(this::executar, "no-" + id); //mantem o processo vivo mesmo sem console
+		t.start();
+	}
+
+	public void encerrar() {
+		ativo = false;
+		fila.add(new Quadro(ACORDAR, 0, null)); //acorda a thread do no
+		fechar();
+	}
+
+	//simula a queda do no: na proxima vez que receber o token ele encerra sem repassa-lo
+	public void falhar() {
+		falhaPendente = true;
+	}
+
+	private void fechar() {
+		try {
+			escuta.close();
+		} catch (IOException e) {
+		}
+		fechar(sucessor);
+		for (Enlace antecessor : antecessores)
+			fechar(antecessor);
+		fechar(saidaServidor);
+	}
+
+	private static void fechar(Enlace enlace) {
+		if (enlace != null)
+			try {
+				enlace.close();
+			} catch (IOException e) {
+			}
+	}
+
+	private void executar() {
+		ultimaAtividade = System.nanoTime();
+		try {
+			while (ativo) {
+				long agora = System.nanoTime();
+				long limite = tempoLimiteNanos();
+				long restante = ultimaAtividade + limite - agora;
+				if (ackPendente >= 0)
+					restante = Math.min(restante, prazoAck - agora);
+				Quadro quadro = restante > 0 ? fila.poll(restante, TimeUnit.NANOSECONDS) : null;
+				if (!ativo)
+					break;
+				if (quadro == null) {
+					if (ackPendente >= 0 && System.nanoTime() - prazoAck >= 0) {
+						System.err.println("No " + id + ": sucessor " + indiceSucessor + " nao confirmou o token");
+						ackPendente = -1;
+						reconectar();
+					} else if (System.nanoTime() - (ultimaAtividade + limite) >= 0) {
+						proporGeracao();
+					}
+					continue;
+				}
+				switch (quadro.getTipo()) {
+				case Quadro.TOKEN:
+					receberToken(quadro.getSequencia(), quadro.getTexto());
+					break;
+				case Quadro.REGEN:
+					receberRegen(quadro.getSequencia(), quadro.getOrigem());
+					break;
+				case Quadro.ACK:
+					if (quadro.getSequencia() == ackPendente)
+						ackPendente = -1;
+					break;
+				case SUCESSOR_CAIU:
+					if (quadro.getSequencia() == conexaoSucessor)
+						sucessorCaiu(indiceSucessor);
+					break;
+				default:
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void receberToken(long geracaoToken, String carona) throws InterruptedException {
+		if (geracaoToken < geracao || geracaoToken < propostaGeracao) {
+			descartados++; //token antigo, ja substituido por uma nova geracao
+			return;
+		}
+		geracao = geracaoToken;
+		if (geracaoToken > propostaGeracao) {
+			propostaGeracao = geracaoToken;
+			propostaOrigem = -1;
+		}
+		if (falhaPendente) {
+			instanteFalha = System.nanoTime();
+			ativo = false;
+			fechar(); //cai segurando o token
+			return;
+		}
+		registrarVolta();
+		carona = receberCarona(carona);
+		String dado = pendentes.poll(sucessor == null ? Math.max(esperaOciosa, 10) : esperaOciosa, TimeUnit.MILLISECONDS);
+		if (dado != null) {
+			//secao critica: so quem tem o token envia dados ao servidor
+			entradas++;
+			int enviados = 0;
+			do {
+				if (saidaServidor != null)
+					try {
+						saidaServidor.enviar(Quadro.dados(++sequenciaDados, dado));
+					} catch (IOException e) {
+						System.err.println("No " + id + ": falha ao enviar ao servidor: " + e);
+					}
+				enviados++;
+			} while (enviados < maximoPorEntrada && (dado = pendentes.poll()) != null);
+			mensagens += enviados;
+		}
+		if (saidaServidor != null && politicaServidor.isNaLiberacao())
+			try {
+				saidaServidor.descarregar(); //o proximo dono do token so escreve depois destes dados
+			} catch (IOException e) {
+				System.err.println("No " + id + ": falha ao enviar ao servidor: " + e);
+			}
+		restaurarSucessor();
+		enviar(carona.isEmpty() ? Quadro.token(geracao)
+				: new Quadro(Quadro.TOKEN, geracao, carona.getBytes(StandardCharsets.UTF_8)));
+		if (sucessor != null) {
+			ackPendente = geracao;
+			prazoAck = System.nanoTime() + tempoLimiteNanos();
+		}
+	}
+
+	//entrega o recado que veio no token e retorna o que segue nele: o mesmo, nada (voltou a origem) ou um recado deste no
+	private String receberCarona(String carona) {
+		if (!carona.isEmpty()) {
+			int separador = carona.indexOf(':');
+			int origem = separador < 0 ? -1 : Integer.parseInt(carona.substring(0, separador));
+			if (origem != id) {
+				if (receptor != null)
+					receptor.accept(carona.substring(separador + 1));
+				return carona;
+			}
+		}
+		String recado = difusoes.poll();
+		return recado == null ? "" : id + ":" + recado;
+	}
+
+	//eleicao de Chang-Roberts sobre (geracao, origem): repassa propostas maiores e descarta as menores
+	private void receberRegen(long geracaoProposta, int origem) throws InterruptedException {
+		if (origem == id) {
+			if (geracaoProposta == propostaGeracao && propostaOrigem == id) {
+				//a proposta deu a volta: nenhum no viu geracao maior, este no emite o novo token
+				regeneracoes++;
+				ultimaRegeneracao = System.nanoTime();
+				System.err.println("No " + id + ": token regenerado, geracao " + geracaoProposta);
+				receberToken(geracaoProposta, "");
+			}
+			return;
+		}
+		if (geracaoProposta > propostaGeracao || (geracaoProposta == propostaGeracao && origem > propostaOrigem)) {
+			propostaGeracao = geracaoProposta;
+			propostaOrigem = origem;
+			ultimaAtividade = System.nanoTime(); //da tempo para a proposta completar a volta
+			enviar(Quadro.regen(geracaoProposta, origem));
+		}
+	}
+
+	private void proporGeracao() throws InterruptedException {
+		propostaGeracao = Math.max(geracao, propostaGeracao) + 1;
+		propostaOrigem = id;
+		ultimaAtividade = System.nanoTime();
+		System.err.println("No " + id + ": token nao chegou no tempo limite, propondo geracao " + propostaGeracao);
+		enviar(Quadro.regen(propostaGeracao, id));
+	}
+
+	private long tempoLimiteNanos() {
+		long limite = Math.max(TimeUnit.MILLISECONDS.toNanos(tempoLimiteMinimo), 4 * getVoltaMediaNanos());
+		return limite + limite * id / membros.size(); //escalona os nos para evitar propostas simultaneas
+	}
+
+	private void enviar(Quadro quadro) throws InterruptedException {
+		if (sucessor == null) {
+			fila.add(quadro); //sozinho no anel
+			return;
+		}
+		try {
+			sucessor.enviar(quadro);
+		} catch (IOException e) {
+			sucessorCaiu(indiceSucessor);
+			enviar(quadro);
+		}
+	}
+
+	//procura o proximo membro vivo depois do sucessor que caiu
+	private void sucessorCaiu(int indice) {
+		if (indice != indiceSucessor || sucessor == null)
+			return; //ja trocado
+		System.err.println("No " + id + ": sucessor " + indice + " caiu");
+		fechar(sucessor);
+		sucessor = null;
+		ackPendente = -1;
+		proximaRestauracao = System.nanoTime() + tempoLimiteNanos();
+		for (int i = (indice + 1) % membros.size(); i != id; i = (i + 1) % membros.size()) {
+			try {
+				usarSucessor(i, abrirMembro(i));
+				return;
+			} catch (IOException e) {
+				//membro fora do ar, tenta o seguinte
+			}
+		}
+		indiceSucessor = id;
+	}
+
+	//sem ACK o sucessor pode so ter perdido a conexao: tenta uma conexao nova antes de pula-lo
+	private void reconectar() {
+		int indice = indiceSucessor;
+		if (sucessor == null)
+			return;
+		fechar(sucessor);
+		try {
+			usarSucessor(indice, abrirMembro(indice));
+			System.err.println("No " + id + ": reconectado ao sucessor " + indice);
+		} catch (IOException e) {
+			sucessorCaiu(indice);
+		}
+	}
+
+	//volta ao sucessor original, ou ao membro vivo mais proximo dele, quando ele retorna ao anel
+	private void restaurarSucessor() {
+		int original = (id + 1) % membros.size();
+		if (indiceSucessor == original || System.nanoTime() - proximaRestauracao < 0)
+			return;
+		proximaRestauracao = System.nanoTime() + tempoLimiteNanos();
+		for (int i = original; i != indiceSucessor; i = (i + 1) % membros.size()) {
+			try {
+				Socket conexao = abrirMembro(i);
+				fechar(sucessor);
+				ackPendente = -1;
+				usarSucessor(i, conexao);
+				System.err.println("No " + id + ": sucessor " + i + " voltou ao anel");
+				return;
+			} catch (IOException e) {
+				//ainda fora do ar
+			}
+		}
+	}
+
+	private Socket abrirMembro(int indice) throws IOException {
+		InetSocketAddress endereco = membros.get(indice);
+		return new Socket(endereco.getHostString(), endereco.getPort());
+	}
+
+	//a conexao com o sucessor so traz confirmacoes (ACK) e o fim de stream quando ele cai
+	private void usarSucessor(int indice, Socket conexao) throws IOException {
+		conexao.setTcpNoDelay(semAtraso);
+		Enlace enlace = Enlace.conectar(conexao, binario);
+		long numero = ++conexaoSucessor;
+		indiceSucessor = indice;
+		sucessor = enlace;
+		iniciarThread("sucessor-" + id, () -> {
+			try {
+				Quadro quadro;
+				while ((quadro = enlace.receber()) != null)
+					if (quadro.getTipo() == Quadro.ACK)
+						fila.add(quadro);
+			} catch (IOException e) {
+			}
+			if (ativo)
+				fila.add(new Quadro(SUCESSOR_CAIU, numero, null)); //ignorado se a conexao ja foi trocada
+		});
+	}
+
+	private void registrarVolta() {
+		long agora = System.nanoTime();
+		if (ultimoToken != 0) {
+			long volta = agora - ultimoToken;
+			voltas++;
+			somaVoltasNanos += volta;
+			if (volta > maiorVoltaNanos)
+				maiorVoltaNanos = volta;
+		}
+		ultimoToken = agora;
+		ultimaAtividade = agora;
+	}
+
+	//o protocolo do antecessor e detectado pelo primeiro byte; cada token recebido e confirmado com ACK
+	private void ler(Socket conexao) {
+		Enlace antecessor = null;
+		try {
+			antecessor = Enlace.aceitar(conexao);
+			antecessores.add(antecessor);
+			Quadro quadro;
+			while ((quadro = antecessor.receber()) != null) {
+				if (quadro.getTipo() == Quadro.TOKEN) {
+					fila.add(quadro);
+					antecessor.enviar(new Quadro(Quadro.ACK, quadro.getSequencia(), null));
+				} else if (quadro.getTipo() == Quadro.REGEN) {
+					fila.add(quadro);
+				}
+			}
+		} catch (IOException e) {
+			if (ativo)
+				System.err.println("No " + id + ": conexao com o antecessor perdida: " + e);
+		} finally {
+			if (antecessor != null)
+				antecessores.remove(antecessor);
+		}
+	}
+
+	//linhas iniciadas por * vao para os outros nos de carona no token; as demais para o servidor
+	private void lerTrabalhoDoConsole() throws IOException {
+		BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+		System.out.println("Digite os dados a enviar; eles serao enviados quando o token chegar");
+		String str;
+		while ((str = br.readLine()) != null) {
+			if (str.startsWith("*")) {
+				difundir(str.substring(1));
+				System.out.println("Recado na fila, segue no proximo token");
+				continue;
+			}
+			adicionarTrabalho(str);
+			System.out.println("Dado na fila, aguardando o token (" + pendentes.size() + " pendentes)");
+		}
+	}
+
+	private static Socket abrir(InetSocketAddress endereco) throws IOException {
+		long limite = System.currentTimeMillis() + LIMITE_CONEXAO;
+		while (true) {
+			try {
+				return new Socket(endereco.getHostString(), endereco.getPort());
+			} catch (ConnectException e) {
+				if (System.currentTimeMillis() > limite)
+					throw e;
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException interrompido) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	private static void iniciarThread(String nome, Runnable tarefa) {
+		Thread t = new Thread(tarefa, nome);
+		t.setDaemon(true);
+		t.start();
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public boolean isAtivo() {
+		return ativo;
+	}
+
+	public long getVoltas() {
+		return voltas;
+	}
+
+	//tempo medio entre duas passagens do token por este no
+	public long getVoltaMediaNanos() {
+		long v = voltas;
+		return v == 0 ? 0 : somaVoltasNanos / v;
+	}
+
+	public long getMaiorVoltaNanos() {
+		return maiorVoltaNanos;
+	}
+
+	public long getEntradas() {
+		return entradas;
+	}
+
+	public long getMensagens() {
+		return mensagens;
+	}
+
+	//quantos tokens este no emitiu apos vencer uma regeneracao
+	public long getRegeneracoes() {
+		return regeneracoes;
+	}
+
+	//System.nanoTime() da ultima regeneracao vencida por este no, 0 se nenhuma
+	public long getUltimaRegeneracao() {
+		return ultimaRegeneracao;
+	}
+
+	//System.nanoTime() em que o no caiu com o token, 0 se nao caiu
+	public long getInstanteFalha() {
+		return instanteFalha;
+	}
+
+	//tokens de geracoes antigas descartados por este no
+	public long getDescartados() {
+		return descartados;
+	}
+
+	@Override
+	public String toString() {
+		return "No [id=" + id + ", voltas=" + voltas + ", voltaMedia=" + (getVoltaMediaNanos() / 1000) + "us, maiorVolta="
+				+ (maiorVoltaNanos / 1000) + "us, entradas=" + entradas + ", mensagens=" + mensagens + ", regeneracoes="
+				+ regeneracoes + ", descartados=" + descartados + "]";
+	}
+}
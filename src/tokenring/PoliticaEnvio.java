@@ -0,0 +1,46 @@
+package tokenring;
+
+/*
+ * Quando os dados acumulados para o Servidor sao realmente escritos no socket:
+ * ao encher o lote (bytes), apos um tempo desde a primeira mensagem pendente (ms)
+ * e/ou quando o no libera o token. Descarregar na liberacao garante que o Servidor
+ * recebe tudo o que foi escrito na secao critica antes do proximo dono do token escrever.
+ */
+public final class PoliticaEnvio {
+
+	//uma escrita por mensagem, como o PrintStream sem buffer fazia
+	public static final PoliticaEnvio IMEDIATA = new PoliticaEnvio(0, 0, false);
+	public static final PoliticaEnvio PADRAO = new PoliticaEnvio(8192, 0, true);
+
+	private final int bytes;
+	private final long tempo;
+	private final boolean naLiberacao;
+
+	/**
+	 * @param bytes tamanho do lote; 0 escreve cada mensagem imediatamente
+	 * @param tempo ms maximos que uma mensagem fica no lote; 0 desativa
+	 * @param naLiberacao descarrega o lote antes de repassar o token
+	 */
+	public PoliticaEnvio(int bytes, long tempo, boolean naLiberacao) {
+		this.bytes = bytes;
+		this.tempo = tempo;
+		this.naLiberacao = naLiberacao;
+	}
+
+	public int getBytes() {
+		return bytes;
+	}
+
+	public long getTempo() {
+		return tempo;
+	}
+
+	public boolean isNaLiberacao() {
+		return naLiberacao;
+	}
+
+	@Override
+	public String toString() {
+		return "PoliticaEnvio [bytes=" + bytes + ", tempo=" + tempo + "ms, naLiberacao=" + naLiberacao + "]";
+	}
+}
@@ -0,0 +1,149 @@
+package tokenring;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Quadro do protocolo binario do anel: [tamanho int][tipo byte][sequencia long][carga].
+ * O tamanho conta os bytes depois dele. Quem usa o protocolo binario envia MAGICO como
+ * primeiro byte da conexao, assim o outro lado continua aceitando o protocolo texto.
+ * TOKEN: sequencia = geracao, carga opcional "origem:dado" que viaja de carona pelo anel
+ * DADOS: sequencia = numero da mensagem do no, carga = dado em UTF-8
+ * ACK: sequencia = geracao do token recebido
+ * REGEN: sequencia = geracao proposta, carga = id de quem propos
+ */
+public final class Quadro {
+
+	public static final byte MAGICO = (byte) 0xB1; //nunca inicia uma linha de texto UTF-8
+	public static final byte TOKEN = 1;
+	public static final byte DADOS = 2;
+	public static final byte ACK = 3;
+	public static final byte REGEN = 4;
+	static final int CABECALHO = 1 + 8;
+	static final int MAXIMO = 1 << 20; //tamanho maximo aceito, protege contra lixo na conexao
+	private static final byte[] VAZIA = new byte[0];
+
+	private final byte tipo;
+	private final long sequencia;
+	private final byte[] carga;
+
+	public Quadro(byte tipo, long sequencia, byte[] carga) {
+		this.tipo = tipo;
+		this.sequencia = sequencia;
+		this.carga = carga == null ? VAZIA : carga;
+	}
+
+	public static Quadro token(long geracao) {
+		return new Quadro(TOKEN, geracao, VAZIA);
+	}
+
+	public static Quadro dados(long sequencia, String dado) {
+		return new Quadro(DADOS, sequencia, dado.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static Quadro regen(long geracao, int origem) {
+		return new Quadro(REGEN, geracao, ByteBuffer.allocate(4).putInt(origem).array());
+	}
+
+	public byte getTipo() {
+		return tipo;
+	}
+
+	public long getSequencia() {
+		return sequencia;
+	}
+
+	public byte[] getCarga() {
+		return carga;
+	}
+
+	public String getTexto() {
+		return new String(carga, StandardCharsets.UTF_8);
+	}
+
+	//id de quem propos a geracao de um REGEN
+	public int getOrigem() {
+		return carga.length < 4 ? -1 : ByteBuffer.wrap(carga).getInt();
+	}
+
+	public void escrever(DataOutputStream out) throws IOException {
+		out.writeInt(CABECALHO + carga.length);
+		out.writeByte(tipo);
+		out.writeLong(sequencia);
+		out.write(carga);
+	}
+
+	//retorna null no fim da conexao
+	public static Quadro ler(DataInputStream in) throws IOException {
+		int tamanho;
+		try {
+			tamanho = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		if (tamanho < CABECALHO || tamanho > MAXIMO)
+			throw new IOException("Quadro com tamanho invalido: " + tamanho);
+		byte tipo = in.readByte();
+		long sequencia = in.readLong();
+		byte[] carga = tamanho == CABECALHO ? VAZIA : new byte[tamanho - CABECALHO];
+		in.readFully(carga);
+		return new Quadro(tipo, sequencia, carga);
+	}
+
+	//le um quadro completo do buffer ou retorna null sem consumir nada se ainda faltam bytes
+	public static Quadro ler(ByteBuffer buffer) throws IOException {
+		if (buffer.remaining() < 4)
+			return null;
+		int tamanho = buffer.getInt(buffer.position());
+		if (tamanho < CABECALHO || tamanho > MAXIMO)
+			throw new IOException("Quadro com tamanho invalido: " + tamanho);
+		if (buffer.remaining() < 4 + tamanho)
+			return null;
+		buffer.getInt();
+		byte tipo = buffer.get();
+		long sequencia = buffer.getLong();
+		byte[] carga = tamanho == CABECALHO ? VAZIA : new byte[tamanho - CABECALHO];
+		buffer.get(carga);
+		return new Quadro(tipo, sequencia, carga);
+	}
+
+	//representacao no protocolo texto; DADOS e a propria linha, como o Servidor sempre recebeu
+	public String texto() {
+		switch (tipo) {
+		case TOKEN:
+			return carga.length == 0 ? No.TOKEN + " " + sequencia : No.TOKEN + " " + sequencia + " " + getTexto();
+		case REGEN:
+			return No.REGEN + " " + sequencia + " " + getOrigem();
+		case ACK:
+			return No.ACK + " " + sequencia;
+		default:
+			return getTexto();
+		}
+	}
+
+	//"Token" sem geracao e a geracao 0
+	public static Quadro deTexto(String linha) {
+		String[] campos = linha.trim().split(" ", 3);
+		try {
+			long numero = campos.length > 1 ? Long.parseLong(campos[1]) : 0;
+			if (campos[0].equalsIgnoreCase(No.TOKEN))
+				return new Quadro(TOKEN, numero, campos.length > 2 ? campos[2].getBytes(StandardCharsets.UTF_8) : VAZIA);
+			if (campos[0].equals(No.REGEN))
+				return regen(numero, campos.length > 2 ? Integer.parseInt(campos[2]) : -1);
+			if (campos[0].equals(No.ACK))
+				return new Quadro(ACK, numero, VAZIA);
+		} catch (NumberFormatException e) {
+			//nao e uma mensagem de controle
+		}
+		return new Quadro(DADOS, 0, linha.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public String toString() {
+		return "Quadro [tipo=" + tipo + ", sequencia=" + sequencia + ", carga=" + carga.length + " bytes]";
+	}
+}
@@ -2,41 +2,293 @@ package tokenring;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
+/*
+ * Servidor que recebe os dados enviados pelos clientes do anel quando estao com o token.
+ * Usa NIO: cada Servidor e um laco sobre um Selector que atende muitas conexoes em uma
+ * unica thread, com buffers diretos e separacao das mensagens por linha.
+ * Clientes que comecam a conexao com Quadro.MAGICO usam o protocolo binario: cada
+ * quadro DADOS e uma mensagem e sua sequencia revela mensagens perdidas.
+ * As mensagens vao para um Destino (console, arquivo ou anel em memoria), escrito em lote
+ * uma vez por volta do seletor.
+ * Uso: Servidor [porta] [quantidade de seletores] [console | arquivo=<caminho> | anel=<capacidade>]
+ */
 public class Servidor implements Runnable {
     
-	Socket socket = null;
-    static ServerSocket ss;
+	static final int PORTA = 7000;
+	private static final int TAMANHO_BUFFER = 8192;
+	private static final long INTERVALO_RELATORIO = 10000; //ms
+
+	//contadores agregados de todos os seletores
+	private static final AtomicLong bytes = new AtomicLong();
+	private static final AtomicLong linhas = new AtomicLong();
+	private static final AtomicLong conexoesAtivas = new AtomicLong();
+	private static final AtomicLong conexoesTotais = new AtomicLong();
+	private static long linhasNoRelatorio;
+	private static long instanteRelatorio = System.nanoTime();
+
+	private final Selector seletor;
+	private final Destino destino;
+	private final Queue<SocketChannel> novas = new ConcurrentLinkedQueue<SocketChannel>();
+	//apenas o primeiro seletor aceita conexoes e as distribui entre todos
+	private ServerSocketChannel aceitador;
+	private Servidor[] grupo;
+	private int proximo;
+    
+    public Servidor() throws IOException {
+        this(new Destino.Console(System.out));
+    }
     
-    public Servidor(Socket newSocket) {
-        this.socket = newSocket;        
+    //destino pode ser compartilhado por varios seletores
+    public Servidor(Destino destino) throws IOException {
+        this.seletor = Selector.open();
+        this.destino = destino;
     }
     
     public static void main(String args[]) throws IOException {
+        int porta = args.length > 0 ? Integer.parseInt(args[0]) : PORTA;
+        int quantidade = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        Destino destino = Destino.criar(args.length > 2 ? args[2] : "console");
         
-    	ss = new ServerSocket(7000);
+        Servidor[] servidores = new Servidor[quantidade];
+        for (int i = 0; i < quantidade; i++)
+            servidores[i] = new Servidor(destino);
+        
+        ServerSocketChannel ss = ServerSocketChannel.open();
+        ss.bind(new InetSocketAddress(porta));
+        servidores[0].aceitar(ss, servidores);
         
     	System.out.println("Servidor Iniciado");
     	
-    	while(true) {
-            Socket s = ss.accept();
-            Servidor es = new Servidor(s); //instancia o Servidor passando o respectivo socket
-            Thread t = new Thread(es); //instancia a Thread passando o servidor
+        for (int i = 1; i < quantidade; i++) {
+            Thread t = new Thread(servidores[i], "seletor-" + i); //os demais seletores so atendem conexoes
+            t.setDaemon(true);
             t.start();
-            
         }
-    	
-    	
-
+        servidores[0].run();
+    }
+    
+    public void aceitar(ServerSocketChannel canal, Servidor[] grupo) throws IOException {
+        this.aceitador = canal;
+        this.grupo = grupo;
+        canal.configureBlocking(false);
+        canal.register(seletor, SelectionKey.OP_ACCEPT);
+    }
+    
+    //entrega uma conexao aceita para ser atendida por este seletor
+    public void registrar(SocketChannel canal) {
+        novas.add(canal);
+        seletor.wakeup();
     }
     
     public void run() {
-        try {        
-            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            
-            while(true) {
-                System.out.println(in.readLine());
+        ByteBuffer leitura = ByteBuffer.allocateDirect(TAMANHO_BUFFER); //compartilhado pelas conexoes deste seletor
+        long proximoRelatorio = System.currentTimeMillis() + INTERVALO_RELATORIO;
+        try {
+            while (seletor.isOpen()) {
+                seletor.select(INTERVALO_RELATORIO);
+                registrarNovas();
+                Iterator<SelectionKey> chaves = seletor.selectedKeys().iterator();
+                while (chaves.hasNext()) {
+                    SelectionKey chave = chaves.next();
+                    chaves.remove();
+                    if (!chave.isValid())
+                        continue;
+                    if (chave.isAcceptable())
+                        aceitarConexoes();
+                    else if (chave.isReadable())
+                        ler(chave, leitura);
+                }
+                try {
+                    destino.descarregar(); //uma escrita para tudo o que chegou nesta volta
+                } catch (IOException e) {
+                    System.err.println("Falha ao escrever no destino: " + e);
+                }
+                if (aceitador != null && System.currentTimeMillis() >= proximoRelatorio) {
+                    System.err.println(relatorio());
+                    proximoRelatorio = System.currentTimeMillis() + INTERVALO_RELATORIO;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    private void aceitarConexoes() throws IOException {
+        SocketChannel canal;
+        while ((canal = aceitador.accept()) != null) {
+            conexoesAtivas.incrementAndGet();
+            conexoesTotais.incrementAndGet();
+            grupo[proximo].registrar(canal); //distribui as conexoes em rodizio
+            proximo = (proximo + 1) % grupo.length;
+        }
+    }
+    
+    private void registrarNovas() {
+        SocketChannel canal;
+        while ((canal = novas.poll()) != null) {
+            try {
+                canal.configureBlocking(false);
+                canal.register(seletor, SelectionKey.OP_READ, new Conexao(canal, destino));
+            } catch (IOException e) {
+                fechar(canal, null);
+            }
+        }
+    }
+    
+    private void ler(SelectionKey chave, ByteBuffer leitura) {
+        Conexao conexao = (Conexao) chave.attachment();
+        try {
+            int lidos;
+            while ((lidos = conexao.canal.read(leitura)) > 0) {
+                leitura.flip();
+                conexao.consumir(leitura);
+                leitura.clear();
+                bytes.addAndGet(lidos);
+            }
+            if (lidos < 0) //fim da conexao
+                fechar(conexao.canal, conexao);
+        } catch (IOException e) {
+            fechar(conexao.canal, conexao);
+        }
+    }
+    
+    private void fechar(SocketChannel canal, Conexao conexao) {
+        try {
+            canal.close(); //tambem cancela a chave no seletor
+        } catch (IOException e) {
+        }
+        conexoesAtivas.decrementAndGet();
+        if (conexao != null)
+            System.err.println("Conexao encerrada: " + conexao);
+    }
+    
+    public static long getBytes() {
+        return bytes.get();
+    }
+    
+    public static long getLinhas() {
+        return linhas.get();
+    }
+    
+    public static long getConexoesAtivas() {
+        return conexoesAtivas.get();
+    }
+    
+    //inclui a taxa de mensagens desde o relatorio anterior
+    public static synchronized String relatorio() {
+        long agora = System.nanoTime();
+        long total = linhas.get();
+        double taxa = (total - linhasNoRelatorio) / Math.max(1e-9, (agora - instanteRelatorio) / 1e9);
+        linhasNoRelatorio = total;
+        instanteRelatorio = agora;
+        return "Servidor [conexoesAtivas=" + conexoesAtivas.get() + ", conexoesTotais=" + conexoesTotais.get()
+                + ", linhas=" + total + ", bytes=" + bytes.get() + String.format(", mensagens/s=%.1f]", taxa);
+    }
+    
+    //estado de uma conexao: linha parcial ainda sem '\n' e contadores proprios
+    static final class Conexao {
+        
+        private final SocketChannel canal;
+        private final Destino destino;
+        private final String endereco;
+        private final long inicio = System.nanoTime();
+        private byte[] linha = new byte[256];
+        private int tamanho;
+        private long bytes;
+        private long linhas;
+        private Boolean binario; //decidido pelo primeiro byte recebido
+        private ByteBuffer quadros; //quadro binario parcial
+        private long ultimaSequencia;
+        private long perdidas;
+        
+        Conexao(SocketChannel canal, Destino destino) throws IOException {
+            this.canal = canal;
+            this.destino = destino;
+            this.endereco = String.valueOf(canal.getRemoteAddress());
+        }
+        
+        //separa as mensagens recebidas; uma mensagem pode chegar em varias leituras
+        void consumir(ByteBuffer dados) throws IOException {
+            bytes += dados.remaining();
+            if (binario == null && dados.hasRemaining()) {
+                binario = dados.get(dados.position()) == Quadro.MAGICO;
+                if (binario) {
+                    dados.get();
+                    quadros = ByteBuffer.allocate(TAMANHO_BUFFER);
+                }
             }
-        } catch (Exception e) {}
+            if (binario != null && binario) {
+                consumirQuadros(dados);
+                return;
+            }
+            while (dados.hasRemaining()) {
+                byte b = dados.get();
+                if (b == '\n') {
+                    int fim = tamanho > 0 && linha[tamanho - 1] == '\r' ? tamanho - 1 : tamanho;
+                    mensagem(linha, fim);
+                    tamanho = 0;
+                } else {
+                    if (tamanho == Quadro.MAXIMO) //sem '\n' dentro do limite: lixo ou cliente com defeito
+                        throw new IOException("Linha maior que " + Quadro.MAXIMO + " bytes");
+                    if (tamanho == linha.length)
+                        linha = java.util.Arrays.copyOf(linha, Math.min(tamanho * 2, Quadro.MAXIMO));
+                    linha[tamanho++] = b;
+                }
+            }
+        }
+        
+        //acumula os bytes ate completar quadros [tamanho][tipo][sequencia][carga]
+        private void consumirQuadros(ByteBuffer dados) throws IOException {
+            while (dados.hasRemaining()) {
+                if (!quadros.hasRemaining()) {
+                    quadros.flip();
+                    quadros = ByteBuffer.allocate(quadros.capacity() * 2).put(quadros); //quadro maior que o buffer
+                }
+                int n = Math.min(quadros.remaining(), dados.remaining());
+                int limite = dados.limit();
+                dados.limit(dados.position() + n);
+                quadros.put(dados);
+                dados.limit(limite);
+                quadros.flip();
+                Quadro quadro;
+                while ((quadro = Quadro.ler(quadros)) != null) {
+                    if (quadro.getTipo() != Quadro.DADOS)
+                        continue;
+                    if (quadro.getSequencia() > ultimaSequencia + 1)
+                        perdidas += quadro.getSequencia() - ultimaSequencia - 1;
+                    ultimaSequencia = quadro.getSequencia();
+                    mensagem(quadro.getCarga(), quadro.getCarga().length);
+                }
+                quadros.compact();
+            }
+        }
+        
+        private void mensagem(byte[] dados, int tamanho) throws IOException {
+            destino.receber(dados, 0, tamanho);
+            linhas++;
+            Servidor.linhas.incrementAndGet();
+        }
+        
+        long getBytes() {
+            return bytes;
+        }
+        
+        long getLinhas() {
+            return linhas;
+        }
+        
+        @Override
+        public String toString() {
+            double segundos = Math.max(1e-9, (System.nanoTime() - inicio) / 1e9);
+            return "Conexao [endereco=" + endereco + (binario != null && binario ? ", binaria, perdidas=" + perdidas : "")
+                    + ", linhas=" + linhas + ", bytes=" + bytes + String.format(", linhas/s=%.1f]", linhas / segundos);
+        }
     }
-}
\ No newline at end of file
+}